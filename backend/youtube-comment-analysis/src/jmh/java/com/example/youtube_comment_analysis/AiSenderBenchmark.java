@@ -0,0 +1,110 @@
+package com.example.youtube_comment_analysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * AiSender 전송 준비 구간: 배치 자르기(chunk), 배치 etag(sha256For), 요청 본문 직렬화.
+ * 직렬화와 응답 해석은 JSON 전송과 바이너리 프레임 전송(fastapi.transport=binary)을 나란히 잰다.
+ * 댓글 길이는 실제 분포처럼 짧은 것이 대부분이고 가끔 긴 것이 섞이게 만든다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AiSenderBenchmark {
+
+	@Param({ "100", "500" })
+	public int batchSize;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private List<AiSender.CommentLite> comments;
+	private List<AiSender.CommentLite> batch;
+	private AiSentimentRequest request;
+	private byte[] jsonResponse;
+	private byte[] frameResponse;
+
+	@Setup
+	public void generate() throws JsonProcessingException {
+		Random rnd = new Random(42);
+		comments = new ArrayList<>(10_000);
+		for (int i = 0; i < 10_000; i++) {
+			int len = rnd.nextInt(10) == 0 ? 200 + rnd.nextInt(800) : 5 + rnd.nextInt(60);
+			StringBuilder sb = new StringBuilder(len);
+			for (int j = 0; j < len; j++)
+				sb.append((char) ('가' + rnd.nextInt(2000)));
+			comments.add(new AiSender.CommentLite("Ugz" + Integer.toHexString(rnd.nextInt()) + i, sb.toString()));
+		}
+		batch = comments.subList(0, batchSize);
+		request = new AiSentimentRequest(batch.stream()
+				.map(c -> new AiSentimentRequest.Comment(c.id(), c.text()))
+				.toList(),
+				new AiSentimentRequest.Trace("bench-request", AiSender.sha256For(batch)));
+
+		// JSON 서버는 요청을 그대로 되돌리며 prediction 만 붙이고, 바이너리 서버는 (index, label) 만 돌려준다
+		ObjectNode echoed = mapper.valueToTree(request);
+		for (JsonNode c : echoed.path("comments"))
+			((ObjectNode) c).put("prediction", rnd.nextInt(3));
+		jsonResponse = mapper.writeValueAsBytes(echoed);
+		ByteBuffer frame = ByteBuffer.allocate(1 + Integer.BYTES + batchSize * 3);
+		frame.put(BinaryAiTransport.VERSION).putInt(batchSize);
+		for (int i = 0; i < batchSize; i++)
+			frame.putShort((short) i).put((byte) rnd.nextInt(3));
+		frameResponse = frame.array();
+	}
+
+	@Benchmark
+	public List<List<AiSender.CommentLite>> chunk() {
+		return AiSender.chunk(comments, batchSize);
+	}
+
+	@Benchmark
+	public String sha256For() {
+		return AiSender.sha256For(batch);
+	}
+
+	@Benchmark
+	public byte[] serializeRequest() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(request);
+	}
+
+	@Benchmark
+	public byte[] encodeFrame() {
+		return BinaryAiTransport.encode(request.comments());
+	}
+
+	@Benchmark
+	public int[] parseJsonResponse() throws IOException {
+		int[] labels = new int[batchSize];
+		Map<String, Integer> index = new HashMap<>(batchSize * 2);
+		for (int i = 0; i < batchSize; i++)
+			index.put(batch.get(i).id(), i);
+		SentimentResponseParser.parse(new ByteArrayInputStream(jsonResponse), (id, label) -> labels[index.get(id)] = label);
+		return labels;
+	}
+
+	@Benchmark
+	public int[] decodeFrame() {
+		return BinaryAiTransport.decode(ByteBuffer.wrap(frameResponse), batchSize);
+	}
+}
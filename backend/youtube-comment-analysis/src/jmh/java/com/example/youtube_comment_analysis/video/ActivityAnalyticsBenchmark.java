@@ -0,0 +1,112 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 댓글 100만 개 활동 분석 비교.
+ * legacy: 기존 analyzeCommentsActivity (LocalDateTime.parse + IntStream.boxed().sorted())
+ * engine: ActivityStats (직접 파싱 + 기본형 히스토그램)
+ * service: VideoService.analyzeCommentsActivity (engine 에 위임, 호출 경로 비용 확인용)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ActivityAnalyticsBenchmark {
+
+    private static final int COMMENTS = 1_000_000;
+
+    private List<CommentDto> comments;
+    // analyzeCommentsActivity 는 필드를 쓰지 않으므로 의존성 없이 만든다
+    private final VideoService service = new VideoService(null, null, null, null, null, null, null);
+
+    @Setup
+    public void generate() {
+        Random rnd = new Random(42);
+        long start = LocalDateTime.of(2024, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+        comments = new ArrayList<>(COMMENTS);
+        for (int i = 0; i < COMMENTS; i++) {
+            long t = start + (long) (rnd.nextDouble() * 365 * 86400);
+            String publishedAt = LocalDateTime.ofEpochSecond(t, 0, ZoneOffset.UTC).format(fmt);
+            comments.add(new CommentDto("c" + i, null, null, 0L, publishedAt));
+        }
+    }
+
+    @Benchmark
+    public AnalysisDto legacy() {
+        int[] hourlyCounts = new int[24];
+        LocalDateTime firstCommentTime = null;
+        LocalDateTime lastCommentTime = null;
+
+        for (CommentDto comment : comments) {
+            LocalDateTime publishedAt = LocalDateTime.parse(comment.getPublishedAt(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            hourlyCounts[publishedAt.getHour()]++;
+            if (firstCommentTime == null || publishedAt.isBefore(firstCommentTime))
+                firstCommentTime = publishedAt;
+            if (lastCommentTime == null || publishedAt.isAfter(lastCommentTime))
+                lastCommentTime = publishedAt;
+        }
+
+        int peakHour = IntStream.range(0, 24)
+                .boxed()
+                .max(Comparator.comparingInt(h -> hourlyCounts[h]))
+                .orElse(0);
+        List<Integer> topActiveHours = IntStream.range(0, 24)
+                .boxed()
+                .sorted((h1, h2) -> Integer.compare(hourlyCounts[h2], hourlyCounts[h1]))
+                .limit(3)
+                .collect(Collectors.toList());
+        Duration duration = Duration.between(firstCommentTime, lastCommentTime);
+        double totalHours = duration.toSeconds() / 3600.0;
+
+        return AnalysisDto.builder()
+                .hourlyCommentCount(IntStream.of(hourlyCounts).boxed().collect(Collectors.toList()))
+                .peakHour(peakHour)
+                .topActiveHours(topActiveHours)
+                .totalCommentPeriod(String.format("%d일 %d시간", duration.toDays(), duration.toHours() % 24))
+                .averageCommentsPerHour(totalHours > 0 ? comments.size() / totalHours : 0)
+                .build();
+    }
+
+    @Benchmark
+    public AnalysisDto engineUtc() {
+        ActivityStats stats = new ActivityStats();
+        for (CommentDto c : comments)
+            stats.add(c);
+        return stats.toDto();
+    }
+
+    // DST 가 있는 시간대: 오프셋 캐시가 전환 시점에만 다시 계산하는지 확인용
+    @Benchmark
+    public AnalysisDto engineNewYork() {
+        ActivityStats stats = new ActivityStats(ZoneId.of("America/New_York"));
+        for (CommentDto c : comments)
+            stats.add(c);
+        return stats.toDto();
+    }
+
+    @Benchmark
+    public AnalysisDto service() {
+        return service.analyzeCommentsActivity(comments);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 100개짜리 commentThreads 페이지 파싱 비교.
+ * readTree: 기존 bodyToMono(String) + mapper.readTree 경로
+ * streaming: VideoService 와 같은 bodyToMono(byte[].class) + CommentThreadsParser.parse(byte[]) 경로
+ *            (String 디코딩과 트리 없이 응답 바이트를 바로 토큰 단위로 읽음)
+ * 할당량은 -prof gc (build.gradle 의 jmh.profilers) 결과의 gc.alloc.rate.norm 으로 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommentThreadsParseBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] payload;
+
+    @Setup
+    public void load() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/commentThreads-100.json")) {
+            payload = in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public List<CommentDto> readTree() throws IOException {
+        // bodyToMono(String.class) 가 하던 디코딩까지 포함
+        JsonNode croot = mapper.readTree(new String(payload, StandardCharsets.UTF_8));
+        JsonNode citems = croot.path("items");
+
+        List<CommentDto> comments = new ArrayList<>();
+        for (JsonNode it : citems) {
+            JsonNode top = it.path("snippet").path("topLevelComment");
+            JsonNode cs = top.path("snippet");
+            comments.add(new CommentDto(
+                    top.path("id").asText(),
+                    cs.path("authorDisplayName").asText(null),
+                    cs.path("textDisplay").asText(null),
+                    cs.path("likeCount").asLong(0),
+                    cs.path("publishedAt").asText(null)
+            ));
+        }
+        croot.path("nextPageToken").asText(null);
+        return comments;
+    }
+
+    @Benchmark
+    public List<CommentDto> streaming() throws IOException {
+        return CommentThreadsParser.parse(payload, false).comments();
+    }
+
+    @Benchmark
+    public List<CommentDto> streamingWithReplies() throws IOException {
+        return CommentThreadsParser.parse(payload, true).comments();
+    }
+}
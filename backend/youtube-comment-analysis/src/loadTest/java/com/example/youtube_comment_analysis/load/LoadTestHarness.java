@@ -0,0 +1,296 @@
+package com.example.youtube_comment_analysis.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.youtube_comment_analysis.YoutubeCommentAnalysisApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 네트워크 없이 도는 /video/{videoId} 부하 테스트.
+ *
+ * - YouTube stub: 녹화된 /videos, /commentThreads 응답을 재생한다. 요청한 videoId 로 바꾸고 댓글 텍스트 앞에 videoId 를 붙여
+ *   영상마다 감성 캐시에 걸리지 않게 한다. 페이지마다 댓글 id 를 바꿔 load.comments 만큼 페이지를 넘길 수 있다.
+ * - FastAPI stub: sentiment_server.py 처럼 댓글마다 prediction 을 붙여 돌려주고, load.aiLatencyMs 만큼 늦게 응답한다.
+ *   load.transport=binary 면 바이너리 프레임 요청에 (index, label) 프레임으로 답한다.
+ * - 앱은 임의 포트로 띄우고 쿼터 스케줄러는 끈다. 분석 큐는 load.queue=true 일 때만 켠다 (기본은 동기 분석 경로).
+ *
+ * 매 요청이 서로 다른 videoId 라서 응답 캐시/코얼레싱 없이 fetch → parse → send → analyze 전체를 탄다.
+ * load.maxP99Ms 를 주면 p99 가 그보다 클 때 종료 코드 1 로 끝나 CI 게이트로 쓸 수 있다.
+ */
+public final class LoadTestHarness {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private LoadTestHarness() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int requests = Integer.getInteger("load.requests", 200);
+		int concurrency = Integer.getInteger("load.concurrency", 16);
+		int warmup = Integer.getInteger("load.warmup", 20);
+		int comments = Integer.getInteger("load.comments", 100);
+		long aiLatencyMs = Long.getLong("load.aiLatencyMs", 20);
+		long maxP99Ms = Long.getLong("load.maxP99Ms", 0);
+		boolean queue = Boolean.getBoolean("load.queue");
+		String transport = System.getProperty("load.transport", "json");
+
+		HttpServer youtube = youtubeStub();
+		HttpServer fastApi = sentimentStub(aiLatencyMs);
+		Path queueDir = Files.createTempDirectory("load-analysis-queue");
+
+		ConfigurableApplicationContext app = new SpringApplicationBuilder(YoutubeCommentAnalysisApplication.class)
+				.web(WebApplicationType.SERVLET)
+				.properties(
+						"server.port=0",
+						"youtube.api.key=load-test",
+						"youtube.base-url=" + url(youtube),
+						"fastapi.base-url=" + url(fastApi),
+						"fastapi.transport=" + transport,
+						"youtube.quota.enabled=false",
+						"fastapi.queue.enabled=" + queue,
+						"fastapi.queue.dir=" + queueDir,
+						"app.youtube.fetch-count=" + comments,
+						"management.tracing.sampling.probability=0.0")
+				.run(args);
+		int exitCode = 0;
+		try {
+			int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+			HttpClient client = HttpClient.newBuilder()
+					.connectTimeout(Duration.ofSeconds(5))
+					.executor(Executors.newFixedThreadPool(concurrency))
+					.build();
+
+			// JIT/커넥션 워밍업은 집계에서 뺀다
+			run(client, port, "warm", warmup, concurrency);
+			Result r = run(client, port, "load", requests, concurrency);
+
+			System.out.printf("%n/video/{videoId}: requests=%d concurrency=%d comments=%d aiLatencyMs=%d queue=%s transport=%s%n",
+					requests, concurrency, comments, aiLatencyMs, queue, transport);
+			System.out.printf("throughput=%.1f req/s errors=%d p50=%dms p99=%dms max=%dms%n",
+					r.throughput(), r.errors(), r.percentile(0.50), r.percentile(0.99), r.percentile(1.0));
+
+			if (r.errors() > 0) {
+				System.out.println("FAIL: 실패한 요청 " + r.errors() + "건");
+				exitCode = 1;
+			}
+			if (maxP99Ms > 0 && r.percentile(0.99) > maxP99Ms) {
+				System.out.println("FAIL: p99 " + r.percentile(0.99) + "ms > load.maxP99Ms " + maxP99Ms + "ms");
+				exitCode = 1;
+			}
+		} finally {
+			app.close();
+			youtube.stop(0);
+			fastApi.stop(0);
+		}
+		System.exit(exitCode);
+	}
+
+	private static Result run(HttpClient client, int port, String prefix, int requests, int concurrency)
+			throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		AtomicInteger sequence = new AtomicInteger();
+		AtomicInteger errors = new AtomicInteger();
+		List<Future<Long>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			futures.add(pool.submit(() -> {
+				String videoId = prefix + "-" + sequence.incrementAndGet();
+				HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/video/" + videoId))
+						.timeout(Duration.ofSeconds(60))
+						.GET()
+						.build();
+				long t0 = System.nanoTime();
+				try {
+					HttpResponse<byte[]> res = client.send(req, HttpResponse.BodyHandlers.ofByteArray());
+					if (res.statusCode() != 200)
+						errors.incrementAndGet();
+				} catch (IOException e) {
+					errors.incrementAndGet();
+				}
+				return (System.nanoTime() - t0) / 1_000_000;
+			}));
+		}
+		List<Long> latencies = new ArrayList<>(requests);
+		for (Future<Long> f : futures)
+			latencies.add(f.get());
+		long elapsedNanos = System.nanoTime() - start;
+		pool.shutdown();
+
+		Collections.sort(latencies);
+		return new Result(latencies, errors.get(), requests / (elapsedNanos / 1e9));
+	}
+
+	private record Result(List<Long> sortedLatencies, int errors, double throughput) {
+		long percentile(double p) {
+			if (sortedLatencies.isEmpty())
+				return 0;
+			int index = (int) Math.ceil(sortedLatencies.size() * p) - 1;
+			return sortedLatencies.get(Math.max(0, Math.min(index, sortedLatencies.size() - 1)));
+		}
+	}
+
+	// ===== YouTube stub =====
+
+	private static HttpServer youtubeStub() throws IOException {
+		JsonNode videos = recorded("/videos-1.json");
+		ObjectNode threads = (ObjectNode) recorded("/commentThreads-100.json");
+		threads.remove("nextPageToken");
+
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newFixedThreadPool(8));
+		server.createContext("/videos", ex -> {
+			Map<String, String> q = query(ex);
+			ObjectNode body = videos.deepCopy();
+			((ObjectNode) body.path("items").path(0)).put("id", q.get("id"));
+			respond(ex, 200, MAPPER.writeValueAsBytes(body));
+		});
+		server.createContext("/commentThreads", ex -> {
+			Map<String, String> q = query(ex);
+			String videoId = q.get("videoId");
+			String token = q.get("pageToken");
+			int page = token == null ? 0 : Integer.parseInt(token.substring(1));
+			respond(ex, 200, MAPPER.writeValueAsBytes(commentPage(threads, videoId, page)));
+		});
+		server.start();
+		return server;
+	}
+
+	// 녹화된 페이지를 videoId/page 에 맞게 바꾼다. 다음 페이지는 항상 있다고 답하고, 끝은 앱의 fetch-count 가 정한다
+	private static ObjectNode commentPage(ObjectNode recorded, String videoId, int page) {
+		ObjectNode body = recorded.deepCopy();
+		for (JsonNode item : body.path("items")) {
+			ObjectNode thread = (ObjectNode) item;
+			thread.put("id", thread.path("id").asText() + "-" + page);
+			ObjectNode snippet = (ObjectNode) thread.path("snippet");
+			snippet.put("videoId", videoId);
+			ObjectNode top = (ObjectNode) snippet.path("topLevelComment");
+			top.put("id", top.path("id").asText() + "-" + page);
+			ObjectNode cs = (ObjectNode) top.path("snippet");
+			cs.put("videoId", videoId);
+			cs.put("textDisplay", videoId + "#" + page + " " + cs.path("textDisplay").asText());
+			cs.put("textOriginal", videoId + "#" + page + " " + cs.path("textOriginal").asText());
+		}
+		body.put("nextPageToken", "p" + (page + 1));
+		return body;
+	}
+
+	private static JsonNode recorded(String resource) throws IOException {
+		try (InputStream in = LoadTestHarness.class.getResourceAsStream(resource)) {
+			if (in == null)
+				throw new IOException("녹화 응답 없음: " + resource);
+			return MAPPER.readTree(in);
+		}
+	}
+
+	// ===== FastAPI stub =====
+
+	private static HttpServer sentimentStub(long latencyMs) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", ex -> {
+			byte[] request = ex.getRequestBody().readAllBytes();
+			if (latencyMs > 0) {
+				try {
+					Thread.sleep(latencyMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+			if (contentType != null && contentType.startsWith("application/x-sentiment-frames")) {
+				respondFrames(ex, request);
+				return;
+			}
+			JsonNode req = MAPPER.readTree(request);
+			ObjectNode resp = MAPPER.createObjectNode();
+			ArrayNode out = resp.putArray("comments");
+			for (JsonNode c : req.path("comments")) {
+				// 텍스트 길이로 라벨을 흩어 분포가 한쪽으로 쏠리지 않게
+				out.addObject().put("id", c.path("id").asText()).put("prediction", c.path("text").asText().length() % 3);
+			}
+			respond(ex, 200, MAPPER.writeValueAsBytes(resp));
+		});
+		server.start();
+		return server;
+	}
+
+	// 요청 [u8 version][u32 count] count x ([u32 길이][utf8]) → 응답 [u8 version][u32 count] count x ([u16 index][u8 label])
+	private static void respondFrames(HttpExchange ex, byte[] request) throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(request);
+		byte version = in.get();
+		int count = in.getInt();
+		ByteBuffer out = ByteBuffer.allocate(1 + Integer.BYTES + count * 3);
+		out.put(version).putInt(count);
+		for (int i = 0; i < count; i++) {
+			byte[] text = new byte[in.getInt()];
+			in.get(text);
+			int label = new String(text, StandardCharsets.UTF_8).length() % 3;
+			out.putShort((short) i).put((byte) label);
+		}
+		ex.getResponseHeaders().set("Content-Type", "application/x-sentiment-frames");
+		ex.sendResponseHeaders(200, out.capacity());
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(out.array());
+		}
+	}
+
+	// ===== 공통 =====
+
+	private static Map<String, String> query(HttpExchange ex) {
+		Map<String, String> out = new HashMap<>();
+		String raw = ex.getRequestURI().getRawQuery();
+		if (raw == null)
+			return out;
+		for (String pair : raw.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0)
+				out.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+		}
+		return out;
+	}
+
+	private static void respond(HttpExchange ex, int status, byte[] body) throws IOException {
+		ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		ex.sendResponseHeaders(status, body.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	private static String url(HttpServer server) {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.youtube_comment_analysis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * FastAPI 배치 크기 자동 조정 (AIMD).
+ * 배치 지연이 목표(fastapi.adaptive-batch.target-latency-ms) 이하이면 step 만큼 늘리고,
+ * 목표를 넘거나 실패하면 절반으로 줄인다. 범위는 [min-batch, fastapi.max-batch].
+ */
+@Component
+@Slf4j
+public class AdaptiveBatcher {
+
+	private final boolean enabled;
+	private final int minBatch;
+	private final int maxBatch;
+	private final int step;
+	private final long targetLatencyMs;
+
+	private int batchSize;
+	private double commentsPerSec; // EWMA
+	private double latencyMs;      // EWMA
+	private final AtomicLong batches = new AtomicLong();
+
+	private static final double ALPHA = 0.2;
+
+	public AdaptiveBatcher(
+			@Value("${fastapi.adaptive-batch.enabled:true}") boolean enabled,
+			@Value("${fastapi.adaptive-batch.min-batch:16}") int minBatch,
+			@Value("${fastapi.max-batch:500}") int maxBatch,
+			@Value("${fastapi.adaptive-batch.step:16}") int step,
+			@Value("${fastapi.adaptive-batch.target-latency-ms:2000}") long targetLatencyMs) {
+		this.enabled = enabled;
+		this.maxBatch = Math.max(1, maxBatch);
+		this.minBatch = Math.max(1, Math.min(minBatch, this.maxBatch));
+		this.step = Math.max(1, step);
+		this.targetLatencyMs = targetLatencyMs;
+		this.batchSize = enabled ? Math.max(this.minBatch, this.maxBatch / 4) : this.maxBatch;
+	}
+
+	public record Stats(boolean enabled, int batchSize, double commentsPerSec, double avgBatchLatencyMs, long batches) {}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public synchronized int currentSize() {
+		return batchSize;
+	}
+
+	/** 배치 하나가 끝날 때마다 호출 */
+	public synchronized void record(int size, long elapsedNanos, boolean ok) {
+		batches.incrementAndGet();
+		double ms = elapsedNanos / 1_000_000.0;
+		if (ok && ms > 0) {
+			double rate = size / (ms / 1000.0);
+			commentsPerSec = commentsPerSec == 0 ? rate : ALPHA * rate + (1 - ALPHA) * commentsPerSec;
+			latencyMs = latencyMs == 0 ? ms : ALPHA * ms + (1 - ALPHA) * latencyMs;
+		}
+		if (!enabled)
+			return;
+
+		int before = batchSize;
+		if (ok && ms <= targetLatencyMs) {
+			// 지연이 배치 크기에 비례하므로, 목표 안쪽인 배치만 크기를 늘리는 근거로 쓴다
+			if (size >= batchSize)
+				batchSize = Math.min(maxBatch, batchSize + step);
+		} else {
+			batchSize = Math.max(minBatch, batchSize / 2);
+		}
+		if (before != batchSize)
+			log.debug("adaptive batch size {} -> {} (latency={}ms ok={})", before, batchSize, (long) ms, ok);
+	}
+
+	public synchronized Stats stats() {
+		return new Stats(enabled, batchSize, commentsPerSec, latencyMs, batches.get());
+	}
+}
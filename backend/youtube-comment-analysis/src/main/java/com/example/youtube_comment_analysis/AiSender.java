@@ -5,101 +5,309 @@ import java.security.MessageDigest;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 @Service
 @Slf4j
 public class AiSender {
-	private final WebClient fastApiWebClient;
+	private final AiTransport transport;
+	private final AdaptiveBatcher batcher;
+	private final SentimentCache sentimentCache;
+	private final FastApiReplicas replicas;
+	private final PipelineMetrics metrics;
 	
-	public AiSender(@Qualifier("fastApiWebClient") WebClient fastApiWebClient) {
-        this.fastApiWebClient = fastApiWebClient;
+	public AiSender(AiTransport transport, AdaptiveBatcher batcher,
+			SentimentCache sentimentCache, FastApiReplicas replicas, PipelineMetrics metrics) {
+        this.transport = transport;
+        this.batcher = batcher;
+        this.sentimentCache = sentimentCache;
+        this.replicas = replicas;
+        this.metrics = metrics;
     }
 	
-	@Value("${fastapi.comment-analysis-path:/analyze/comments}")
-    private String path;
-	
+	// 재시도까지 포함한 배치 하나의 전체 예산. 시도 하나는 fastapi.attempt-timeout-ms
 	@Value("${fastapi.timeout-ms:20000}")
     private long timeoutMs;
 	
 	@Value("${fastapi.max-batch:500}")
     private int maxBatch;
 	
+	@Value("${fastapi.max-inflight:4}")
+    private int maxInflight;
+	
 	public record CommentLite(String id, String text) {}
 	
+	/** 동기 호출용. 배치는 내부적으로 maxInflight 개까지 동시에 전송된다. */
 	public SendResult send(List<CommentLite> comments) {
+		SendResult result = sendAsync(comments).block();
+		return result != null ? result : new SendResult(0, 0, 0, 0);
+	}
+	
+	public Mono<SendResult> sendAsync(List<CommentLite> comments) {
+		return sendBatches(comments)
+				.reduce(new SendResult(0, 0, 0, 0), SendResult::plus);
+	}
+	
+	public Flux<BatchResult> sendBatches(List<CommentLite> comments) {
 		if(comments==null || comments.isEmpty())
-			return new SendResult(0,0,0);
+			return Flux.empty();
 		
 		comments = comments.stream()
                 .filter(c -> c.text() != null && !c.text().isBlank())
                 .toList();
 		
 		if (comments.isEmpty()) 
-			return new SendResult(0, 0, 0);
+			return Flux.empty();
+		
+		Plan plan = plan(comments);
+		List<CommentLite> toSend = plan.toSend();
 		
-		List<List<CommentLite>> batches = chunk(comments, Math.max(1, maxBatch));
-		String requestId = UUID.randomUUID().toString();
+		Flux<List<CommentLite>> batches;
+		if (!batcher.isEnabled()) {
+			batches = Flux.fromIterable(chunk(toSend, Math.max(1, maxBatch)));
+		}
+		else {
+			// 서버가 배치 안에서 가장 긴 댓글 길이로 패딩하므로, 길이순으로 정렬해 비슷한 길이끼리 묶는다
+			List<CommentLite> byLength = toSend.stream()
+					.sorted(Comparator.comparingInt(c -> c.text().length()))
+					.toList();
+			batches = adaptiveChunks(byLength);
+		}
+		return plan.cachedResult().concatWith(dispatch(batches, plan));
+	}
+	
+	/**
+	 * 전송 전 정리: 감성 캐시에 있는 댓글은 바로 결과로 돌리고,
+	 * 정규화 텍스트가 같은 댓글은 첫 번째 것만 보낸 뒤 결과를 나머지에 복사한다.
+	 */
+	private record Plan(List<CommentLite> toSend,
+			Map<String, SentimentCache.Key> keys,
+			Map<String, List<String>> duplicates,
+			Map<String, Integer> cached) {
 		
-		int ok = 0, fail4xx = 0, failOther = 0;
+		Flux<BatchResult> cachedResult() {
+			if (cached.isEmpty())
+				return Flux.empty();
+			return Flux.just(new BatchResult(null, cached.size(), cached.size(), 0, 0, cached.size(), cached));
+		}
 		
-		for(List<CommentLite> batch:batches) {
-			String etag=sha256For(batch);
-			var req=new AiSentimentRequest(batch.stream()
-					.map(c->new AiSentimentRequest.Comment(c.id(),c.text()))
-					.toList(), 
-					new AiSentimentRequest.Trace(requestId, etag));
-			try {
-				var spec=fastApiWebClient.post()
-						.uri(path)
-						.bodyValue(req);
-				
-				ResponseEntity<Void> resp=spec.retrieve()
-						.toBodilessEntity()
-						.timeout(Duration.ofMillis(timeoutMs))
-						.block();
-				
-				int code=resp!=null ? resp.getStatusCode().value() : -1;
-				if(code>=200 && code<300) {
-					ok+=batch.size();
-					log.info("FastAPI send ok: batchSize={} etag={}", batch.size(), etag);
-				}
-				else if(code >= 400 && code < 500) {
-					fail4xx += batch.size();
-					log.warn("FastAPI client error {} etag={} batchSize={}", code, etag, batch.size());
-				}
-				else {
-					failOther += batch.size();
-					log.error("FastAPI non-2xx {} etag={} batchSize={}", code, etag, batch.size());
-				}
+		int sizeWithDuplicates(List<CommentLite> batch) {
+			int n = batch.size();
+			for (CommentLite c : batch) {
+				List<String> dups = duplicates.get(c.id());
+				if (dups != null)
+					n += dups.size();
 			}
-			catch(WebClientResponseException e) {
-				fail4xx += batch.size();
-				log.error("FastAPI HTTP {} {} body={}", e.getRawStatusCode(), e.getStatusText(), e.getResponseBodyAsString(), e);
+			return n;
+		}
+	}
+	
+	private Plan plan(List<CommentLite> comments) {
+		List<CommentLite> toSend = new ArrayList<>();
+		Map<String, SentimentCache.Key> keys = new HashMap<>();
+		Map<String, List<String>> duplicates = new HashMap<>();
+		Map<String, Integer> cached = new HashMap<>();
+		Map<SentimentCache.Key, String> firstIdByKey = new HashMap<>();
+		
+		for (CommentLite c : comments) {
+			SentimentCache.Key key = SentimentCache.keyOf(c.text());
+			String firstId = firstIdByKey.get(key);
+			if (firstId != null) {
+				duplicates.computeIfAbsent(firstId, id -> new ArrayList<>()).add(c.id());
+				continue;
 			}
-			catch(Exception e) {
-				failOther += batch.size();
-				log.error("FastAPI send failed etag={} batchSize={}", etag, batch.size(), e);
+			Integer label = sentimentCache.get(key);
+			if (label != null) {
+				cached.put(c.id(), label);
+				continue;
 			}
+			firstIdByKey.put(key, c.id());
+			keys.put(c.id(), key);
+			toSend.add(c);
 		}
-		return new SendResult(ok, fail4xx, failOther);
+		return new Plan(toSend, keys, duplicates, cached);
 	}
 	
+	// 배치를 미리 다 자르지 않고, 요청이 올 때마다 그 시점의 배치 크기로 잘라낸다
+	private Flux<List<CommentLite>> adaptiveChunks(List<CommentLite> list) {
+		return Flux.generate(() -> 0, (from, sink) -> {
+			if (from >= list.size()) {
+				sink.complete();
+				return from;
+			}
+			int to = Math.min(from + batcher.currentSize(), list.size());
+			sink.next(list.subList(from, to));
+			return to;
+		});
+	}
+	
+	/**
+	 * 최대 maxInflight 개 배치를 동시에 전송한다.
+	 * flatMap 의 동시성 제한이 곧 backpressure 라서, 창이 꽉 차면 upstream 요청이 멈춘다.
+	 * 결과는 완료되는 순서대로 배치마다 흘려보낸다.
+	 */
+	private Flux<BatchResult> dispatch(Flux<List<CommentLite>> batches, Plan plan) {
+		return Flux.deferContextual(ctx -> {
+			// 웹 요청의 requestId 를 그대로 Trace 에 실어 span 과 FastAPI 로그를 잇는다
+			String requestId = PipelineMetrics.requestId(ctx);
+			return batches.flatMap(batch -> sendBatch(batch, requestId, plan), Math.max(1, maxInflight));
+		});
+	}
 	
-	 public record SendResult(int success, int clientError, int otherError) {}
+	private Mono<BatchResult> sendBatch(List<CommentLite> batch, String requestId, Plan plan) {
+		int size = plan.sizeWithDuplicates(batch);
+		String etag=sha256For(batch);
+		var req=new AiSentimentRequest(batch.stream()
+				.map(c->new AiSentimentRequest.Comment(c.id(),c.text()))
+				.toList(), 
+				new AiSentimentRequest.Trace(requestId, etag));
+		
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			// 같은 etag 로 다시 보내므로 재시도/헤징은 서버 입장에서 멱등이다
+			return metrics.aiBatch(batch.size(), transport.name(), attempt(req)
+				.retryWhen(Retry.backoff(replicas.maxRetries(), replicas.retryBackoff())
+						.jitter(0.5)
+						.filter(AiSender::isRetryable)
+						.onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+				.timeout(Duration.ofMillis(timeoutMs)))
+				.map(labels -> {
+					log.info("FastAPI send ok: batchSize={} etag={} transport={}", batch.size(), etag, transport.name());
+					return new BatchResult(etag, size, size, 0, 0, size - batch.size(), predictions(batch, labels, plan));
+				})
+				.onErrorResume(WebClientResponseException.class, e -> {
+					boolean clientError = e.getStatusCode().is4xxClientError();
+					log.error("FastAPI HTTP {} {} etag={} body={}", e.getStatusCode().value(), e.getStatusText(), etag,
+							e.getResponseBodyAsString(), e);
+					return Mono.just(BatchResult.failed(etag, size, clientError));
+				})
+				.onErrorResume(e -> {
+					log.error("FastAPI send failed etag={} batchSize={}: {}", etag, batch.size(), e.toString());
+					return Mono.just(BatchResult.failed(etag, size, false));
+				})
+				.doOnNext(r -> batcher.record(batch.size(), System.nanoTime() - start, r.success() == size));
+		});
+	}
+	
+	/**
+	 * 한 번의 시도. 헤징이 켜져 있으면 첫 레플리카가 hedge delay 안에 응답하지 않을 때
+	 * 다른 레플리카에도 같은 요청을 보내고 먼저 성공한 응답을 쓴다 (늦은 쪽은 취소).
+	 * 보낼 다른 레플리카가 없으면 (나머지 브레이커가 모두 OPEN) 헤지는 빈 결과로 끝나서,
+	 * 첫 레플리카가 실패하면 늦어도 hedge delay 뒤에는 그 오류로 시도가 끝나고 재시도로 넘어간다.
+	 */
+	private Mono<int[]> attempt(AiSentimentRequest req) {
+		return Mono.defer(() -> {
+			FastApiReplicas.Replica first = replicas.pick(null);
+			if (first == null)
+				return Mono.error(new FastApiReplicas.CircuitOpenException());
+			
+			Mono<int[]> primary = post(first, req);
+			Duration hedgeDelay = replicas.hedgeDelay();
+			if (hedgeDelay == null)
+				return primary;
+			
+			Mono<int[]> hedged = Mono.delay(hedgeDelay)
+					.then(Mono.defer(() -> {
+						FastApiReplicas.Replica other = replicas.pick(first);
+						return other == null ? Mono.<int[]>empty() : post(other, req);
+					}));
+			return Mono.firstWithValue(primary, hedged)
+					.onErrorMap(NoSuchElementException.class, AiSender::firstFailure);
+		});
+	}
+	
+	// firstWithValue 는 값 없이 끝나면 각 소스의 오류를 묶어 NoSuchElementException 으로 낸다. 재시도 판단은 실제 오류로 한다
+	private static Throwable firstFailure(NoSuchElementException e) {
+		List<Throwable> causes = new ArrayList<>();
+		if (e.getCause() != null)
+			causes.addAll(Exceptions.unwrapMultiple(e.getCause()));
+		for (Throwable s : e.getSuppressed())
+			causes.addAll(Exceptions.unwrapMultiple(s));
+		return causes.stream()
+				.filter(t -> !(t instanceof NoSuchElementException))
+				.findFirst()
+				.orElse(e);
+	}
+	
+	private Mono<int[]> post(FastApiReplicas.Replica replica, AiSentimentRequest req) {
+		return transport.send(replica, req)
+				.timeout(replicas.attemptTimeout())
+				.doOnSuccess(b -> replica.breaker().onSuccess())
+				.doOnError(e -> {
+					if (isRetryable(e))
+						replica.breaker().onFailure();
+					else
+						replica.breaker().onSuccess(); // 4xx 는 요청 문제지 서버 장애가 아니다
+				});
+	}
+	
+	// 5xx / 408 / 429 / 타임아웃 / 연결 오류만 재시도한다. 나머지 4xx 와 서킷 OPEN 은 바로 실패
+	private static boolean isRetryable(Throwable e) {
+		if (e instanceof WebClientResponseException r) {
+			int code = r.getStatusCode().value();
+			return code >= 500 || code == 408 || code == 429;
+		}
+		return e instanceof TimeoutException || e instanceof WebClientRequestException;
+	}
+	
+	
+	// 응답의 예측값(labels[i] 는 batch 의 i 번째 댓글)을 감성 캐시에 넣고, 같은 텍스트로 묶였던 중복 댓글에도 복사한다
+	private Map<String, Integer> predictions(List<CommentLite> batch, int[] labels, Plan plan) {
+		Map<String, Integer> out = new HashMap<>();
+		for (int i = 0; i < batch.size() && i < labels.length; i++) {
+			int label = labels[i];
+			if (label < 0)
+				continue;
+			String id = batch.get(i).id();
+			out.put(id, label);
+			SentimentCache.Key key = plan.keys().get(id);
+			if (key != null)
+				sentimentCache.put(key, label);
+			List<String> dups = plan.duplicates().get(id);
+			if (dups != null) {
+				for (String dupId : dups)
+					out.put(dupId, label);
+			}
+		}
+		return out;
+	}
+	
+	
+	 /** size/success 에는 캐시·중복으로 전송을 건너뛴 댓글(cached)도 포함된다. predictions 는 commentId → 라벨 */
+	 public record BatchResult(String etag, int size, int success, int clientError, int otherError,
+			 int cached, Map<String, Integer> predictions) {
+		 
+		 static BatchResult failed(String etag, int size, boolean clientError) {
+			 return new BatchResult(etag, size, 0, clientError ? size : 0, clientError ? 0 : size, 0, Map.of());
+		 }
+	 }
+	 
+	 public record SendResult(int success, int clientError, int otherError, int cached) {
+		 public SendResult plus(BatchResult b) {
+			 return new SendResult(success + b.success(), clientError + b.clientError(), otherError + b.otherError(),
+					 cached + b.cached());
+		 }
+	 }
 	 
-	 private static List<List<CommentLite>> chunk(List<CommentLite> list, int size) {
+	 // chunk / sha256For 는 jmh 의 AiSenderBenchmark 에서 직접 잰다
+	 static List<List<CommentLite>> chunk(List<CommentLite> list, int size) {
 	        List<List<CommentLite>> out = new ArrayList<>();
 	        for (int i = 0; i < list.size(); i += size) {
 	            out.add(list.subList(i, Math.min(i + size, list.size())));
@@ -107,7 +315,7 @@ public class AiSender {
 	        return out;
 	    }
 	 
-	 private static String sha256For(List<CommentLite> comments) {
+	 static String sha256For(List<CommentLite> comments) {
 	        try {
 	            MessageDigest md = MessageDigest.getInstance("SHA-256");
 	            String payload = comments.stream()
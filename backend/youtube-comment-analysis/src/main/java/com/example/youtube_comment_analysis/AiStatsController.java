@@ -0,0 +1,37 @@
+package com.example.youtube_comment_analysis;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/ai")
+public class AiStatsController {
+
+	private final AdaptiveBatcher adaptiveBatcher;
+	private final SentimentCache sentimentCache;
+	private final FastApiReplicas fastApiReplicas;
+
+	// 현재 배치 크기와 처리량(comments/sec)
+	@GetMapping("/batch/stats")
+	public AdaptiveBatcher.Stats batchStats() {
+		return adaptiveBatcher.stats();
+	}
+
+	// 감성 결과 캐시 적중률 (= 모델 호출을 아낀 비율)
+	@GetMapping("/sentiment-cache/stats")
+	public SentimentCache.Stats sentimentCacheStats() {
+		return sentimentCache.stats();
+	}
+
+	// 레플리카별 서킷 브레이커 상태
+	@GetMapping("/replicas/stats")
+	public List<FastApiReplicas.ReplicaStats> replicaStats() {
+		return fastApiReplicas.stats();
+	}
+}
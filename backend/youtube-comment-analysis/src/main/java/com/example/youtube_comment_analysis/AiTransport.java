@@ -0,0 +1,21 @@
+package com.example.youtube_comment_analysis;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 배치 하나를 감성 서버 레플리카 하나에 보내고 예측을 받아오는 방식 (fastapi.transport).
+ *
+ * 재시도, 헤징, 서킷 브레이커, 시도별 타임아웃은 AiSender 가 바깥에서 감싸므로 구현은 한 번의 전송과 응답 해석만 한다.
+ * 실패는 WebClientResponseException / WebClientRequestException 그대로 내보내야 AiSender 가 재시도 여부를 판단할 수 있다.
+ */
+public interface AiTransport {
+
+	/** 메트릭 태그·로그에 쓰는 이름 (json, binary) */
+	String name();
+
+	/**
+	 * request.comments() 순서대로 라벨을 돌려준다. 응답에 없는 댓글은 -1.
+	 * request.trace().analysisETag() 는 Idempotency-Key 로 보낸다.
+	 */
+	Mono<int[]> send(FastApiReplicas.Replica replica, AiSentimentRequest request);
+}
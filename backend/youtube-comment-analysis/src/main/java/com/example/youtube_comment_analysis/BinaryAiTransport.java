@@ -0,0 +1,119 @@
+package com.example.youtube_comment_analysis;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 압축 전송 (fastapi.transport=binary): 텍스트만 길이 접두 바이너리 프레임으로 보내고, 응답은 (index, label) 쌍만 받는다.
+ * 같은 경로에 Content-Type / Accept 를 application/x-sentiment-frames 로 보내므로 서버는 Content-Type 으로 구분한다.
+ *
+ * 모든 정수는 big-endian.
+ * <pre>
+ * 요청: [u8 version=1][u32 count] count x ([u32 utf8 길이][utf8 텍스트])
+ * 응답: [u8 version=1][u32 count] count x ([u16 index][u8 label])
+ * </pre>
+ * 댓글 id 와 trace 는 본문에서 빠진다. requestId 는 X-Request-Id, etag 는 Idempotency-Key 헤더로 보내고,
+ * index 는 요청 안에서의 순서라서 id 없이도 결과를 되돌릴 수 있다.
+ * fastapi.pool.h2c=true 면 커넥션 하나에 여러 배치를 다중화해 보낸다 (서버가 h2c 를 지원해야 한다).
+ */
+@Component
+@ConditionalOnProperty(name = "fastapi.transport", havingValue = "binary")
+public class BinaryAiTransport implements AiTransport {
+
+	static final MediaType FRAMES = MediaType.parseMediaType("application/x-sentiment-frames");
+	static final byte VERSION = 1;
+	private static final int MAX_COUNT = 0xFFFF;
+
+	private final WebClient fastApiWebClient;
+	private final String path;
+
+	public BinaryAiTransport(@Qualifier("fastApiWebClient") WebClient fastApiWebClient,
+			@Value("${fastapi.comment-analysis-path:/analyze/comments}") String path) {
+		this.fastApiWebClient = fastApiWebClient;
+		this.path = path;
+	}
+
+	@Override
+	public String name() {
+		return "binary";
+	}
+
+	@Override
+	public Mono<int[]> send(FastApiReplicas.Replica replica, AiSentimentRequest request) {
+		return Mono.fromCallable(() -> encode(request.comments()))
+				.flatMap(frame -> fastApiWebClient.post()
+						.uri(replica.uri(path))
+						.contentType(FRAMES)
+						.accept(FRAMES)
+						.header("Idempotency-Key", request.trace().analysisETag())
+						.header("X-Request-Id", request.trace().requestId())
+						.bodyValue(frame)
+						.retrieve()
+						.bodyToMono(DataBuffer.class))
+				.map(body -> {
+					try {
+						byte[] bytes = new byte[body.readableByteCount()];
+						body.read(bytes);
+						return decode(ByteBuffer.wrap(bytes), request.comments().size());
+					} finally {
+						DataBufferUtils.release(body);
+					}
+				});
+	}
+
+	// jmh 의 AiSenderBenchmark 에서 직접 잰다
+	static byte[] encode(List<AiSentimentRequest.Comment> comments) {
+		if (comments.size() > MAX_COUNT)
+			throw new IllegalArgumentException("바이너리 프레임 한 개에 담을 수 있는 댓글 수를 넘었습니다: " + comments.size());
+
+		byte[][] texts = new byte[comments.size()][];
+		int length = 1 + Integer.BYTES;
+		for (int i = 0; i < texts.length; i++) {
+			String text = comments.get(i).text();
+			texts[i] = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+			length += Integer.BYTES + texts[i].length;
+		}
+
+		ByteBuffer b = ByteBuffer.allocate(length);
+		b.put(VERSION).putInt(texts.length);
+		for (byte[] text : texts)
+			b.putInt(text.length).put(text);
+		return b.array();
+	}
+
+	/** 응답 프레임 → 요청 순서의 라벨 배열. 응답에 없는 index 는 -1 */
+	static int[] decode(ByteBuffer frame, int requested) {
+		int[] labels = new int[requested];
+		Arrays.fill(labels, -1);
+		try {
+			byte version = frame.get();
+			if (version != VERSION)
+				throw new IllegalStateException("알 수 없는 감성 응답 프레임 버전: " + version);
+			int count = frame.getInt();
+			for (int i = 0; i < count; i++) {
+				int index = Short.toUnsignedInt(frame.getShort());
+				int label = Byte.toUnsignedInt(frame.get());
+				if (index >= requested)
+					throw new IllegalStateException("감성 응답 index 가 요청 범위를 벗어났습니다: " + index + " >= " + requested);
+				labels[index] = label;
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IllegalStateException("감성 응답 프레임이 잘렸습니다", e);
+		}
+		return labels;
+	}
+}
@@ -0,0 +1,172 @@
+package com.example.youtube_comment_analysis;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * FastAPI 감성 서버 레플리카 목록과 호출 정책 (시도별 타임아웃, 재시도, 헤징).
+ * fastapi.base-url 에 쉼표로 여러 주소를 주면 라운드로빈으로 돌리고, 레플리카마다 서킷 브레이커를 둔다.
+ *
+ * 브레이커: 연속 실패가 failure-threshold 에 닿으면 open-ms 동안 OPEN (바로 실패),
+ * 이후 HALF_OPEN 에서 한 번 시험 호출을 보내 성공하면 CLOSED, 실패하면 다시 OPEN.
+ */
+@Component
+@Slf4j
+public class FastApiReplicas {
+
+	private final List<Replica> replicas;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final Duration attemptTimeout;
+	private final int maxRetries;
+	private final Duration retryBackoff;
+	private final Duration hedgeDelay;
+
+	public FastApiReplicas(
+			@Value("${fastapi.base-url}") String baseUrls,
+			@Value("${fastapi.attempt-timeout-ms:5000}") long attemptTimeoutMs,
+			@Value("${fastapi.retry.max-retries:2}") int maxRetries,
+			@Value("${fastapi.retry.backoff-ms:200}") long retryBackoffMs,
+			@Value("${fastapi.hedge.delay-ms:0}") long hedgeDelayMs,
+			@Value("${fastapi.circuit.failure-threshold:5}") int failureThreshold,
+			@Value("${fastapi.circuit.open-ms:10000}") long openMs) {
+		this.replicas = Arrays.stream(baseUrls.split(","))
+				.map(String::trim)
+				.filter(s -> !s.isEmpty())
+				.map(url -> new Replica(url, new CircuitBreaker(failureThreshold, openMs)))
+				.toList();
+		if (replicas.isEmpty())
+			throw new IllegalArgumentException("fastapi.base-url 이 비어 있습니다");
+		this.attemptTimeout = Duration.ofMillis(Math.max(1, attemptTimeoutMs));
+		this.maxRetries = Math.max(0, maxRetries);
+		this.retryBackoff = Duration.ofMillis(Math.max(1, retryBackoffMs));
+		this.hedgeDelay = hedgeDelayMs > 0 ? Duration.ofMillis(hedgeDelayMs) : null;
+	}
+
+	public record Replica(String baseUrl, CircuitBreaker breaker) {
+		URI uri(String path) {
+			return URI.create(baseUrl.replaceAll("/+$", "") + path);
+		}
+	}
+
+	/** 브레이커가 호출을 허용하는 다음 레플리카. except 는 헤징 때 이미 쓴 레플리카. 모두 열려 있으면 null */
+	Replica pick(Replica except) {
+		int n = replicas.size();
+		int start = Math.floorMod(next.getAndIncrement(), n);
+		for (int i = 0; i < n; i++) {
+			Replica r = replicas.get((start + i) % n);
+			if (r != except && r.breaker().tryAcquire())
+				return r;
+		}
+		return null;
+	}
+
+	Duration attemptTimeout() {
+		return attemptTimeout;
+	}
+
+	int maxRetries() {
+		return maxRetries;
+	}
+
+	Duration retryBackoff() {
+		return retryBackoff;
+	}
+
+	/** 헤징은 레플리카가 둘 이상이고 fastapi.hedge.delay-ms > 0 일 때만 */
+	Duration hedgeDelay() {
+		return replicas.size() > 1 ? hedgeDelay : null;
+	}
+
+	public List<ReplicaStats> stats() {
+		return replicas.stream()
+				.map(r -> new ReplicaStats(r.baseUrl(), r.breaker().state(), r.breaker().failures(),
+						r.breaker().opened()))
+				.toList();
+	}
+
+	public record ReplicaStats(String baseUrl, CircuitBreaker.State state, int consecutiveFailures, long timesOpened) {}
+
+	public static final class CircuitBreaker {
+
+		public enum State { CLOSED, OPEN, HALF_OPEN }
+
+		private final int failureThreshold;
+		private final long openNanos;
+
+		private State state = State.CLOSED;
+		private int failures;
+		private long openUntil;
+		private long probeUntil;
+		private long opened;
+
+		CircuitBreaker(int failureThreshold, long openMs) {
+			this.failureThreshold = Math.max(1, failureThreshold);
+			this.openNanos = Duration.ofMillis(Math.max(1, openMs)).toNanos();
+		}
+
+		synchronized boolean tryAcquire() {
+			long now = System.nanoTime();
+			switch (state) {
+				case CLOSED:
+					return true;
+				case OPEN:
+					if (now - openUntil < 0)
+						return false;
+					state = State.HALF_OPEN;
+					probeUntil = now + openNanos;
+					return true;
+				default:
+					// 시험 호출이 응답 없이 취소(헤징 패배 등)됐으면 open-ms 뒤에 한 번 더 허용
+					if (now - probeUntil < 0)
+						return false;
+					probeUntil = now + openNanos;
+					return true;
+			}
+		}
+
+		synchronized void onSuccess() {
+			failures = 0;
+			state = State.CLOSED;
+		}
+
+		synchronized void onFailure() {
+			failures++;
+			if (state == State.HALF_OPEN || failures >= failureThreshold) {
+				if (state != State.OPEN) {
+					opened++;
+					log.warn("FastAPI circuit OPEN (consecutive failures={})", failures);
+				}
+				state = State.OPEN;
+				openUntil = System.nanoTime() + openNanos;
+			}
+		}
+
+		synchronized State state() {
+			return state;
+		}
+
+		synchronized int failures() {
+			return failures;
+		}
+
+		synchronized long opened() {
+			return opened;
+		}
+	}
+
+	/** 호출할 수 있는 레플리카가 없을 때 (모든 브레이커가 OPEN) */
+	static class CircuitOpenException extends RuntimeException {
+		CircuitOpenException() {
+			super("FastAPI 서킷 브레이커 OPEN: 호출 가능한 레플리카 없음");
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.youtube_comment_analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 기본 전송: AiSentimentRequest 를 JSON 으로 POST 하고, 서버가 돌려준 comments[].id / prediction 을 스트리밍으로 읽는다.
+ * 서버가 요청 본문(텍스트 포함)을 그대로 되돌려주므로 응답이 요청보다 크다.
+ */
+@Component
+@ConditionalOnProperty(name = "fastapi.transport", havingValue = "json", matchIfMissing = true)
+public class JsonAiTransport implements AiTransport {
+
+	private final WebClient fastApiWebClient;
+	private final String path;
+
+	public JsonAiTransport(@Qualifier("fastApiWebClient") WebClient fastApiWebClient,
+			@Value("${fastapi.comment-analysis-path:/analyze/comments}") String path) {
+		this.fastApiWebClient = fastApiWebClient;
+		this.path = path;
+	}
+
+	@Override
+	public String name() {
+		return "json";
+	}
+
+	@Override
+	public Mono<int[]> send(FastApiReplicas.Replica replica, AiSentimentRequest request) {
+		return fastApiWebClient.post()
+				.uri(replica.uri(path))
+				.header("Idempotency-Key", request.trace().analysisETag())
+				.bodyValue(request)
+				.retrieve()
+				.bodyToMono(DataBuffer.class)
+				.map(body -> labels(body, request.comments()));
+	}
+
+	private static int[] labels(DataBuffer body, List<AiSentimentRequest.Comment> comments) {
+		Map<String, Integer> index = new HashMap<>(comments.size() * 2);
+		for (int i = 0; i < comments.size(); i++)
+			index.put(comments.get(i).id(), i);
+
+		int[] labels = new int[comments.size()];
+		Arrays.fill(labels, -1);
+		try (InputStream in = body.asInputStream()) {
+			SentimentResponseParser.parse(in, (id, label) -> {
+				Integer i = index.get(id);
+				if (i != null)
+					labels[i] = label;
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException("FastAPI 응답 파싱 실패", e);
+		} finally {
+			DataBufferUtils.release(body);
+		}
+		return labels;
+	}
+}
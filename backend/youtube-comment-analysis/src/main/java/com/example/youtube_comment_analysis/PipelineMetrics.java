@@ -0,0 +1,141 @@
+package com.example.youtube_comment_analysis;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * fetch → parse → send → analyze 구간 계측.
+ *
+ * - 구간 시간은 Observation 으로 잰다. Observation 하나가 타이머(youtube.call, ai.batch, video.request)와
+ *   트레이스 span 을 같이 만들고, 부모 span 은 Reactor Context 로 이어진다.
+ * - 요청 하나에 requestId 하나: VideoService 가 Context 에 넣고 AiSender 가 AiSentimentRequest.Trace 에 그대로 실어 보내므로
+ *   span 의 requestId 태그로 FastAPI 쪽 로그까지 한 요청을 따라갈 수 있다.
+ * - 크기 분포(배치 크기, 요청당 댓글 수)는 DistributionSummary, 페이지 파싱은 span 없이 Timer 만.
+ */
+@Component
+public class PipelineMetrics {
+
+	private static final String REQUEST_ID = "requestId";
+
+	private final MeterRegistry meters;
+	private final ObservationRegistry observations;
+	private final DistributionSummary aiBatchSize;
+
+	public PipelineMetrics(MeterRegistry meters, ObservationRegistry observations) {
+		this.meters = meters;
+		this.observations = observations;
+		this.aiBatchSize = DistributionSummary.builder("ai.batch.size")
+				.description("FastAPI 로 보낸 배치 하나의 댓글 수")
+				.baseUnit("comments")
+				.publishPercentileHistogram()
+				.register(meters);
+	}
+
+	/** 요청 범위 requestId 를 Context 에 넣는다 */
+	public static <T> Mono<T> withRequestId(Mono<T> mono) {
+		return mono.contextWrite(c -> c.hasKey(REQUEST_ID) ? c : c.put(REQUEST_ID, UUID.randomUUID().toString()));
+	}
+
+	public static <T> Flux<T> withRequestId(Flux<T> flux) {
+		return flux.contextWrite(c -> c.hasKey(REQUEST_ID) ? c : c.put(REQUEST_ID, UUID.randomUUID().toString()));
+	}
+
+	/** 웹 요청 밖(분석 큐 워커 등)에서 정해진 id 를 requestId 로 쓸 때 */
+	public static <T> Flux<T> withRequestId(Flux<T> flux, String requestId) {
+		return flux.contextWrite(c -> c.put(REQUEST_ID, requestId));
+	}
+
+	/** Context 의 requestId (없으면 새로 만든다) */
+	public static String requestId(ContextView ctx) {
+		return ctx.getOrDefault(REQUEST_ID, UUID.randomUUID().toString());
+	}
+
+	/** 영상 요청 하나 전체 (video.request) */
+	public <T> Mono<T> request(String operation, String videoId, Mono<T> body) {
+		return observe("video.request", KeyValues.of("operation", operation), videoId, body);
+	}
+
+	/** 스트리밍 요청 전체 (video.request) */
+	public <T> Flux<T> request(String operation, String videoId, Flux<T> body) {
+		return Flux.deferContextual(ctx -> {
+			Observation obs = start("video.request", KeyValues.of("operation", operation), videoId, ctx);
+			return body
+					.doOnError(obs::error)
+					.doFinally(signal -> obs.stop())
+					.contextWrite(c -> c.put(ObservationThreadLocalAccessor.KEY, obs));
+		});
+	}
+
+	/** YouTube Data API 호출 하나 (youtube.call, endpoint = videos/commentThreads/...) */
+	public <T> Mono<T> youtubeCall(String endpoint, Mono<T> call) {
+		return observe("youtube.call", KeyValues.of("endpoint", endpoint), null, call);
+	}
+
+	/** FastAPI 배치 하나 (ai.batch, transport = json/binary). 크기는 ai.batch.size 로 따로 남긴다 */
+	public <T> Mono<T> aiBatch(int size, String transport, Mono<T> call) {
+		return Mono.defer(() -> {
+			aiBatchSize.record(size);
+			return observe("ai.batch", KeyValues.of("transport", transport), null, call);
+		});
+	}
+
+	/** 응답 페이지 JSON 파싱 시간 */
+	public void recordParse(String endpoint, long elapsedNanos) {
+		Timer.builder("youtube.parse")
+				.description("YouTube 응답 페이지 하나의 JSON 파싱 시간")
+				.tag("endpoint", endpoint)
+				.publishPercentileHistogram()
+				.register(meters)
+				.record(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/** 요청 하나가 돌려준 댓글 수(returned)와 새로 받은 댓글 수(new) */
+	public void recordComments(String operation, int returned, int added) {
+		comments(operation, "returned").record(returned);
+		comments(operation, "new").record(added);
+	}
+
+	private DistributionSummary comments(String operation, String kind) {
+		return DistributionSummary.builder("video.request.comments")
+				.description("요청 하나에서 다룬 댓글 수")
+				.baseUnit("comments")
+				.tags("operation", operation, "kind", kind)
+				.publishPercentileHistogram()
+				.register(meters);
+	}
+
+	private <T> Mono<T> observe(String name, KeyValues low, String videoId, Mono<T> body) {
+		return Mono.deferContextual(ctx -> {
+			Observation obs = start(name, low, videoId, ctx);
+			return body
+					.doOnError(obs::error)
+					.doFinally(signal -> obs.stop())
+					.contextWrite(c -> c.put(ObservationThreadLocalAccessor.KEY, obs));
+		});
+	}
+
+	private Observation start(String name, KeyValues low, String videoId, ContextView ctx) {
+		Observation parent = ctx.getOrDefault(ObservationThreadLocalAccessor.KEY,
+				observations.getCurrentObservation());
+		Observation obs = Observation.createNotStarted(name, observations)
+				.parentObservation(parent)
+				.lowCardinalityKeyValues(low)
+				.highCardinalityKeyValue(REQUEST_ID, requestId(ctx));
+		if (videoId != null)
+			obs.highCardinalityKeyValue("videoId", videoId);
+		return obs.start();
+	}
+}
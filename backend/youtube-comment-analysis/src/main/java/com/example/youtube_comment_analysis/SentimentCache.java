@@ -0,0 +1,170 @@
+package com.example.youtube_comment_analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 정규화한 댓글 텍스트의 해시 → 감성 라벨 캐시.
+ * "첫 댓글", "ㅋㅋㅋ", 이모지 같은 흔한 댓글은 영상이 달라도 같은 결과이므로 모델을 다시 부르지 않는다.
+ * fastapi.sentiment-cache.file 이 설정되면 memory-mapped 링 버퍼 파일에도 기록해서 재시작 후 다시 읽어 온다.
+ */
+@Component
+@Slf4j
+public class SentimentCache {
+
+	/** SHA-256(정규화 텍스트) 앞 128bit */
+	public record Key(long hi, long lo) {}
+
+	public record Stats(long hits, long misses, double hitRatio, long entries, long persisted) {}
+
+	// 파일 구조: [0..8) 누적 기록 수, [16..) 레코드(hi 8 + lo 8 + label 4)
+	private static final int HEADER = 16;
+	private static final int RECORD = 20;
+	// MappedByteBuffer 하나는 int 로 인덱싱하므로 파일 전체가 2GB 안에 들어가야 한다
+	static final int MAX_FILE_SLOTS = (Integer.MAX_VALUE - HEADER) / RECORD;
+
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private final Cache<Key, Integer> memory;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private final int fileSlots;
+	private FileChannel channel;
+	private MappedByteBuffer mapped; // null 이면 파일 저장 안 함
+	private long written;
+
+	public SentimentCache(
+			@Value("${fastapi.sentiment-cache.max-entries:1000000}") long maxEntries,
+			@Value("${fastapi.sentiment-cache.file:}") String file,
+			@Value("${fastapi.sentiment-cache.file-slots:1000000}") int fileSlots) {
+		this.memory = Caffeine.newBuilder()
+				.maximumSize(maxEntries)
+				.build();
+		this.fileSlots = Math.max(1, fileSlots);
+
+		if (file != null && !file.isBlank()) {
+			if (this.fileSlots > MAX_FILE_SLOTS)
+				throw new IllegalArgumentException("fastapi.sentiment-cache.file-slots 는 " + MAX_FILE_SLOTS
+						+ " 이하여야 합니다 (매핑 하나에 담을 수 있는 크기): " + fileSlots);
+			try {
+				open(Path.of(file));
+			} catch (IOException e) {
+				throw new IllegalStateException("감성 캐시 파일 열기 실패: " + file, e);
+			}
+		}
+	}
+
+	public static Key keyOf(String text) {
+		byte[] digest = SHA256.get().digest(normalize(text).getBytes(StandardCharsets.UTF_8));
+		ByteBuffer b = ByteBuffer.wrap(digest);
+		return new Key(b.getLong(0), b.getLong(8));
+	}
+
+	/** NFKC + 소문자 + 앞뒤 공백 제거 + 연속 공백을 하나로 */
+	static String normalize(String text) {
+		String n = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+		StringBuilder sb = new StringBuilder(n.length());
+		boolean space = false;
+		for (int i = 0; i < n.length(); i++) {
+			char ch = n.charAt(i);
+			if (Character.isWhitespace(ch)) {
+				space = sb.length() > 0;
+			} else {
+				if (space)
+					sb.append(' ');
+				sb.append(ch);
+				space = false;
+			}
+		}
+		return sb.toString();
+	}
+
+	public Integer get(Key key) {
+		Integer label = memory.getIfPresent(key);
+		if (label != null)
+			hits.incrementAndGet();
+		else
+			misses.incrementAndGet();
+		return label;
+	}
+
+	public void put(Key key, int label) {
+		memory.put(key, label);
+		append(key, label);
+	}
+
+	public synchronized Stats stats() {
+		long h = hits.get(), m = misses.get();
+		return new Stats(h, m, h + m == 0 ? 0.0 : (double) h / (h + m),
+				memory.estimatedSize(), mapped == null ? 0 : Math.min(written, fileSlots));
+	}
+
+	private void open(Path path) throws IOException {
+		if (path.getParent() != null)
+			Files.createDirectories(path.getParent());
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) RECORD * fileSlots);
+
+		written = Math.max(0, mapped.getLong(0)); // 손상된 헤더면 처음부터
+		long n = Math.min(written, fileSlots);
+		for (int i = 0; i < n; i++) {
+			int off = offset(i);
+			memory.put(new Key(mapped.getLong(off), mapped.getLong(off + 8)), mapped.getInt(off + 16));
+		}
+		log.info("감성 캐시 파일 로드: {} entries from {}", n, path);
+	}
+
+	// 링 버퍼: 가득 차면 가장 오래된 레코드부터 덮어쓴다.
+	// close() 와 같은 락 안에서 mapped 를 확인해야 닫는 중에 해제된 매핑에 쓰지 않는다
+	private synchronized void append(Key key, int label) {
+		if (mapped == null)
+			return;
+		int off = offset(written % fileSlots);
+		mapped.putLong(off, key.hi());
+		mapped.putLong(off + 8, key.lo());
+		mapped.putInt(off + 16, label);
+		written++;
+		mapped.putLong(0, written);
+	}
+
+	// 곱셈을 long 으로 해서 int 로 넘치지 않게 하고, 매핑 밖이면 잘못 쓰기 전에 실패한다
+	private static int offset(long slot) {
+		return Math.toIntExact(HEADER + slot * RECORD);
+	}
+
+	@PreDestroy
+	public synchronized void close() throws IOException {
+		if (mapped != null) {
+			mapped.force();
+			channel.close();
+			mapped = null;
+		}
+	}
+}
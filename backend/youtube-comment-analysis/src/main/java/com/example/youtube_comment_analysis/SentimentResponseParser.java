@@ -0,0 +1,61 @@
+package com.example.youtube_comment_analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * sentiment_server.py 응답에서 comments[].id / prediction 만 뽑아낸다.
+ * 서버는 요청 본문을 그대로 돌려주므로 text, trace 는 값을 문자열로 만들지 않고 건너뛴다.
+ */
+final class SentimentResponseParser {
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private SentimentResponseParser() {}
+
+	@FunctionalInterface
+	interface PredictionConsumer {
+		void accept(String commentId, int label);
+	}
+
+	static void parse(InputStream in, PredictionConsumer sink) throws IOException {
+		try (JsonParser p = FACTORY.createParser(in)) {
+			if (p.nextToken() != JsonToken.START_OBJECT)
+				throw new IOException("FastAPI 응답이 JSON 객체가 아닙니다");
+
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				String field = p.currentName();
+				JsonToken t = p.nextToken();
+				if ("comments".equals(field) && t == JsonToken.START_ARRAY) {
+					while (p.nextToken() == JsonToken.START_OBJECT) {
+						readPrediction(p, sink);
+					}
+				} else {
+					p.skipChildren();
+				}
+			}
+		}
+	}
+
+	private static void readPrediction(JsonParser p, PredictionConsumer sink) throws IOException {
+		String id = null;
+		int label = -1;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.currentName();
+			JsonToken t = p.nextToken();
+			if ("id".equals(field)) {
+				id = p.getValueAsString();
+			} else if ("prediction".equals(field) && t == JsonToken.VALUE_NUMBER_INT) {
+				label = p.getIntValue();
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (id != null && label >= 0)
+			sink.accept(id, label);
+	}
+}
@@ -11,6 +11,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
 
 @Configuration
@@ -22,11 +23,13 @@ public class WebClientConfig {
                 .pendingAcquireMaxCount(1000)
                 .pendingAcquireTimeout(Duration.ofSeconds(2))
                 .maxIdleTime(Duration.ofSeconds(30))
+                // reactor.netty.connection.provider.* (active/pending/acquire time) 를 Micrometer 로
+                .metrics(true)
                 .build();
     }
 	
 	@Bean(name = "youtubeHttpClient")
-    public HttpClient youtubeHttpClient(reactor.netty.resources.ConnectionProvider youtubePool) {
+    public HttpClient youtubeHttpClient(@org.springframework.beans.factory.annotation.Qualifier("youtubePool") reactor.netty.resources.ConnectionProvider youtubePool) {
         return HttpClient.create(youtubePool)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
                 .responseTimeout(Duration.ofSeconds(5))
@@ -37,19 +40,63 @@ public class WebClientConfig {
     }
 	
 	@Bean(name = "youtubeWebClient")
-    public WebClient youtubeWebClient(@org.springframework.beans.factory.annotation.Qualifier("youtubeHttpClient") HttpClient httpClient) {
+    public WebClient youtubeWebClient(@org.springframework.beans.factory.annotation.Qualifier("youtubeHttpClient") HttpClient httpClient,
+    		@Value("${youtube.base-url:https://www.googleapis.com/youtube/v3}") String youtubeBaseUrl) {
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .baseUrl("https://www.googleapis.com/youtube/v3")
+                // 부하 테스트에서는 로컬 stub 주소로 바꾼다
+                .baseUrl(youtubeBaseUrl)
                 .defaultHeader("Accept", "application/json")
+                // replies 가 포함된 100개 페이지는 기본 버퍼(256KB)를 넘길 수 있음
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(4 * 1024 * 1024))
                 .build();
     }
 	
+	// FastAPI 전용 풀: 동시에 나가는 배치 수(fastapi.max-inflight) x 동시 요청 수를 감당할 정도로
+	@Bean
+    public reactor.netty.resources.ConnectionProvider fastApiPool(
+    		@Value("${fastapi.pool.max-connections:50}") int maxConnections,
+    		@Value("${fastapi.pool.pending-acquire-max:500}") int pendingAcquireMax) {
+        return reactor.netty.resources.ConnectionProvider.builder("fastapi-pool")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofSeconds(5))
+                .maxIdleTime(Duration.ofSeconds(30))
+                // reactor.netty.connection.provider.* (active/pending/acquire time) 를 Micrometer 로
+                .metrics(true)
+                .build();
+    }
+	
+	@Bean(name = "fastApiHttpClient")
+    public HttpClient fastApiHttpClient(@org.springframework.beans.factory.annotation.Qualifier("fastApiPool") reactor.netty.resources.ConnectionProvider fastApiPool,
+    		@Value("${fastapi.timeout-ms:20000}") long timeoutMs,
+    		@Value("${fastapi.pool.h2c:false}") boolean h2c) {
+        return HttpClient.create(fastApiPool)
+                // h2c(prior knowledge): 커넥션 하나에 여러 배치를 다중화. 서버가 HTTP/2 cleartext 를 받아야 한다
+                .protocol(h2c ? HttpProtocol.H2C : HttpProtocol.HTTP11)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 3000)
+                .responseTimeout(Duration.ofMillis(timeoutMs))
+                .keepAlive(true);
+    }
+	
 	@Bean(name = "fastApiWebClient")
-    public WebClient fastApiWebClient(@Value("${fastapi.base-url}") String fastApiBaseUrl) {
+    public WebClient fastApiWebClient(@Value("${fastapi.base-url}") String fastApiBaseUrl,
+    		@org.springframework.beans.factory.annotation.Qualifier("fastApiHttpClient") HttpClient httpClient,
+    		@Value("${fastapi.max-batch:500}") int maxBatch,
+    		@Value("${fastapi.max-comment-bytes:32768}") int maxCommentBytes) {
         return WebClient.builder()
-                .baseUrl(fastApiBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // fastapi.base-url 에 레플리카가 여러 개면 AiSender 가 절대 URI 로 고르므로 첫 주소는 기본값일 뿐
+                .baseUrl(fastApiBaseUrl.split(",")[0].trim())
                 .defaultHeader("Accept", "application/json")
+                // 서버가 댓글 본문까지 되돌려주므로 응답은 배치 크기 x 댓글 최대 크기만큼 커질 수 있다 (기본 256KB 로는 부족)
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(fastApiResponseLimit(maxBatch, maxCommentBytes)))
                 .build();
     }
+
+    // YouTube 댓글은 최대 10,000자라 한글이면 UTF-8 로 30KB 정도, 기본 max-comment-bytes 는 여기에 id/JSON 여유를 더한 값
+    static int fastApiResponseLimit(int maxBatch, int maxCommentBytes) {
+        long limit = (long) Math.max(1, maxBatch) * Math.max(1024, maxCommentBytes) + 64 * 1024;
+        return (int) Math.min(Integer.MAX_VALUE, limit);
+    }
 }
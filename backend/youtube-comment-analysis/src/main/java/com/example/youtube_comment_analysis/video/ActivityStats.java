@@ -0,0 +1,229 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 댓글 활동 통계 누적기. 댓글을 하나씩 add 해서 접어 넣고, 필요할 때 AnalysisDto 로 만든다.
+ * 증분 동기화에서는 새로 들어온 댓글만 add 하면 된다. (thread-safe 하지 않음)
+ *
+ * publishedAt 은 RFC3339 고정 형식이라 직접 epoch 초로 파싱하고, 시/요일/분 히스토그램은
+ * 기본형 배열에만 쌓는다. 댓글당 객체 할당이 없고, 지정한 시간대 기준으로 구간을 나눈다.
+ */
+final class ActivityStats {
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final boolean fixedOffset;
+
+    // 시간대 오프셋 캐시: [rangeStart, rangeEnd) 구간에서는 rangeOffset 이 유효 (DST 전환 시에만 다시 계산)
+    private long rangeStart = Long.MAX_VALUE;
+    private long rangeEnd = Long.MIN_VALUE;
+    private int rangeOffset;
+
+    private final int[] hourlyCounts = new int[24];
+    private final int[] weekdayCounts = new int[7]; // 0 = 월요일
+    private final int[] minuteCounts = new int[60];
+    private long firstEpoch = Long.MAX_VALUE;
+    private long lastEpoch = Long.MIN_VALUE;
+    private long count;
+
+    ActivityStats() {
+        this(ZoneOffset.UTC);
+    }
+
+    ActivityStats(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        this.fixedOffset = rules.isFixedOffset();
+        if (fixedOffset)
+            this.rangeOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+    }
+
+    void add(CommentDto comment) {
+        String publishedAt = comment.getPublishedAt();
+        if (publishedAt != null)
+            add(parseEpochSeconds(publishedAt));
+    }
+
+    void add(long epochSecond) {
+        long local = epochSecond + offsetAt(epochSecond);
+        long day = Math.floorDiv(local, 86400);
+        int secOfDay = (int) (local - day * 86400);
+
+        hourlyCounts[secOfDay / 3600]++;
+        minuteCounts[(secOfDay / 60) % 60]++;
+        weekdayCounts[(int) Math.floorMod(day + 3, 7)]++; // 1970-01-01 은 목요일
+        count++;
+
+        if (epochSecond < firstEpoch)
+            firstEpoch = epochSecond;
+        if (epochSecond > lastEpoch)
+            lastEpoch = epochSecond;
+    }
+
+    AnalysisDto toDto() {
+        return toDto(zone, hourlyCounts, weekdayCounts, minuteCounts, firstEpoch, lastEpoch, count);
+    }
+
+    /** 히스토그램과 기간으로 AnalysisDto 를 만든다 (VideoRollup 이 시간대를 옮긴 히스토그램을 넘길 때도 쓴다) */
+    static AnalysisDto toDto(ZoneId zone, int[] hourlyCounts, int[] weekdayCounts, int[] minuteCounts,
+                             long firstEpoch, long lastEpoch, long count) {
+        if (count == 0) {
+            return AnalysisDto.builder()
+                    .hourlyCommentCount(Collections.nCopies(24, 0)) // 24시간 0으로 초기화
+                    .weekdayCommentCount(Collections.nCopies(7, 0))
+                    .minuteCommentCount(Collections.nCopies(60, 0))
+                    .peakHour(0)
+                    .topActiveHours(new ArrayList<>())
+                    .totalCommentPeriod("데이터 없음")
+                    .averageCommentsPerHour(0.0)
+                    .timezone(zone.getId())
+                    .build();
+        }
+
+        // 활동 많은 상위 3개 시간대 (첫 번째가 최다 댓글 시간)
+        int[] top = topK(hourlyCounts, 3);
+
+        // 댓글 작성 기간
+        long seconds = lastEpoch - firstEpoch;
+        String totalCommentPeriod = String.format("%d일 %d시간", seconds / 86400, (seconds / 3600) % 24);
+
+        // 시간당 평균 댓글 수
+        double totalHours = seconds / 3600.0;
+        double averageCommentsPerHour = (totalHours > 0) ? (double) count / totalHours : 0;
+
+        return AnalysisDto.builder()
+                .hourlyCommentCount(toList(hourlyCounts))
+                .weekdayCommentCount(toList(weekdayCounts))
+                .minuteCommentCount(toList(minuteCounts))
+                .peakHour(top[0])
+                .topActiveHours(toList(top))
+                .totalCommentPeriod(totalCommentPeriod)
+                .averageCommentsPerHour(averageCommentsPerHour)
+                .timezone(zone.getId())
+                .build();
+    }
+
+    private int offsetAt(long epochSecond) {
+        if (fixedOffset || (epochSecond >= rangeStart && epochSecond < rangeEnd))
+            return rangeOffset;
+
+        Instant t = Instant.ofEpochSecond(epochSecond);
+        rangeOffset = rules.getOffset(t).getTotalSeconds();
+        ZoneOffsetTransition prev = rules.previousTransition(t.plusSeconds(1));
+        ZoneOffsetTransition next = rules.nextTransition(t);
+        rangeStart = prev == null ? Long.MIN_VALUE : prev.toEpochSecond();
+        rangeEnd = next == null ? Long.MAX_VALUE : next.toEpochSecond();
+        return rangeOffset;
+    }
+
+    /**
+     * 개수 내림차순 상위 k 개 인덱스. 동률이면 작은 인덱스가 먼저 (기존 stable sort 와 같은 순서).
+     * k 가 작으므로 k 번 선택하는 방식으로 박싱/정렬 없이 구한다.
+     */
+    static int[] topK(int[] counts, int k) {
+        int n = Math.min(k, counts.length);
+        int[] top = new int[n];
+        int prevCount = Integer.MAX_VALUE;
+        int prevIdx = -1;
+        for (int j = 0; j < n; j++) {
+            int best = -1;
+            for (int i = 0; i < counts.length; i++) {
+                boolean after = counts[i] < prevCount || (counts[i] == prevCount && i > prevIdx);
+                if (after && (best == -1 || counts[i] > counts[best]))
+                    best = i;
+            }
+            top[j] = best;
+            prevCount = counts[best];
+            prevIdx = best;
+        }
+        return top;
+    }
+
+    /**
+     * "2025-09-01T13:45:00Z", "2025-09-01T13:45:00.123+09:00" 형식을 epoch 초로.
+     * 형식이 다르거나 범위를 벗어난 값(13월, 25시, 윤초 등)은 OffsetDateTime 파서로 넘겨 같은 결과/예외를 낸다.
+     */
+    static long parseEpochSeconds(String s) {
+        int len = s.length();
+        if (len >= 20 && s.charAt(4) == '-' && s.charAt(7) == '-' && s.charAt(10) == 'T'
+                && s.charAt(13) == ':' && s.charAt(16) == ':') {
+            int year = digits(s, 0, 4);
+            int month = digits(s, 5, 2);
+            int day = digits(s, 8, 2);
+            int hour = digits(s, 11, 2);
+            int minute = digits(s, 14, 2);
+            int second = digits(s, 17, 2);
+
+            int i = 19;
+            boolean valid = true;
+            if (s.charAt(i) == '.') {
+                int from = ++i;
+                while (i < len && s.charAt(i) >= '0' && s.charAt(i) <= '9')
+                    i++;
+                valid = i - from <= 9; // OffsetDateTime 과 같게 소수 0~9자리
+            }
+
+            int offset = 0;
+            if (i == len - 1 && (s.charAt(i) == 'Z' || s.charAt(i) == 'z')) {
+                // UTC
+            } else if (i == len - 6 && (s.charAt(i) == '+' || s.charAt(i) == '-') && s.charAt(i + 3) == ':') {
+                int oh = digits(s, i + 1, 2);
+                int om = digits(s, i + 4, 2);
+                valid &= oh >= 0 && oh <= 18 && om >= 0 && om <= 59 && oh * 60 + om <= 18 * 60;
+                offset = (s.charAt(i) == '-' ? -1 : 1) * (oh * 3600 + om * 60);
+            } else {
+                valid = false;
+            }
+
+            valid &= year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month)
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59;
+            if (valid)
+                return daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offset;
+        }
+        return OffsetDateTime.parse(s).toEpochSecond();
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2)
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // 숫자가 아니면 -1
+    private static int digits(String s, int from, int n) {
+        int v = 0;
+        for (int i = from; i < from + n; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9)
+                return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    // 그레고리력 날짜 → 1970-01-01 기준 일수 (H. Hinnant, days_from_civil)
+    private static long daysFromCivil(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153L * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> out = new ArrayList<>(values.length);
+        for (int v : values)
+            out.add(v);
+        return out;
+    }
+}
@@ -11,6 +11,12 @@ public class AnalysisDto {
     // 0시부터 23시까지의 시간대별 댓글 수를 담을 리스트
     private final List<Integer> hourlyCommentCount;
 
+    // 요일별 댓글 수 (0 = 월요일 ... 6 = 일요일)
+    private final List<Integer> weekdayCommentCount;
+
+    // 분(0~59)별 댓글 수
+    private final List<Integer> minuteCommentCount;
+
     // 댓글이 가장 많았던 시간
     private final Integer peakHour;
 
@@ -22,4 +28,7 @@ public class AnalysisDto {
 
     // 시간당 평균 댓글 수
     private final Double averageCommentsPerHour;
+
+    // 시간대 구간을 나눈 기준 타임존
+    private final String timezone;
 }
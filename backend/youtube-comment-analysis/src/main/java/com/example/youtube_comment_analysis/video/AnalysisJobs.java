@@ -0,0 +1,317 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.youtube_comment_analysis.AiSender;
+import com.example.youtube_comment_analysis.PipelineMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 감성 분석을 웹 요청에서 떼어 내는 백그라운드 작업.
+ * VideoService 는 새 댓글을 배치 단위로 AnalysisQueue 에 넣고 job id 만 돌려주며,
+ * 워커 스레드가 큐를 비우면서 FastAPI 로 보내고 결과를 CommentSyncStore 에 반영한다.
+ *
+ * - 레코드는 FastAPI 결과가 저장소에 반영된 뒤에만 ack 하므로, 재시작 후에는 ack 안 된 배치부터 다시 보낸다.
+ *   이미 분석된 텍스트는 감성 캐시에서 바로 나오므로 중복 처리 비용은 작다.
+ *   재시작 뒤에는 댓글 보관 상태가 비어 있으므로 결과는 영상 누적 요약(VideoRollups)에 반영된다.
+ *   요약을 재시작 너머로 유지하려면 youtube.rollup.snapshot-file 을 함께 설정한다.
+ * - 같은 배치가 다시 와도 CommentSyncStore 가 라벨이 처음 붙거나 바뀔 때만 통계를 고친다.
+ * - 서버 장애(otherError)면 같은 배치를 백오프하며 다시 보내고, max-attempts 를 넘으면 실패로 기록하고 버린다.
+ */
+@Component
+@Slf4j
+public class AnalysisJobs {
+
+    // 레코드 형식 버전. 댓글마다 videoId 를 담는다 (여러 영상 댓글을 한 배치에). 다른 버전은 읽지 않는다
+    private static final byte FORMAT_VERSION = 2;
+
+    private final AiSender aiSender;
+    private final CommentSyncStore syncStore;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final AnalysisQueue queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Cache<String, Job> jobs = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofDays(1))
+            .maximumSize(100_000)
+            .build();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile boolean running = true;
+
+    public AnalysisJobs(AiSender aiSender, CommentSyncStore syncStore,
+            @Value("${fastapi.queue.enabled:false}") boolean enabled,
+            @Value("${fastapi.queue.dir:./data/analysis-queue}") String dir,
+            @Value("${fastapi.queue.segment-bytes:67108864}") int segmentBytes,
+            @Value("${fastapi.queue.fsync:false}") boolean fsync,
+            @Value("${fastapi.queue.workers:2}") int workerCount,
+            @Value("${fastapi.max-batch:500}") int batchSize,
+            @Value("${fastapi.queue.max-attempts:5}") int maxAttempts,
+            @Value("${fastapi.queue.backoff-ms:1000}") long backoffMs) {
+        this.aiSender = aiSender;
+        this.syncStore = syncStore;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(1, backoffMs);
+        if (!enabled) {
+            this.queue = null;
+            return;
+        }
+        try {
+            this.queue = new AnalysisQueue(Path.of(dir), segmentBytes, fsync);
+        } catch (IOException e) {
+            throw new UncheckedIOException("분석 큐 열기 실패: " + dir, e);
+        }
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            Thread t = new Thread(this::work, "analysis-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 분석할 댓글을 큐에 넣고 job id 를 돌려준다. 넣을 댓글이 없으면 null */
+    public String enqueue(String videoId, List<CommentDto> comments) {
+        return enqueue(Map.of(videoId, comments));
+    }
+
+    /** 여러 영상의 댓글을 하나의 작업으로 넣는다. 배치는 영상 경계와 상관없이 batchSize 씩 채운다 */
+    public String enqueue(Map<String, List<CommentDto>> commentsByVideo) {
+        List<Item> toSend = new ArrayList<>();
+        commentsByVideo.forEach((videoId, comments) -> comments.stream()
+                .filter(c -> c.getText() != null && !c.getText().isBlank())
+                .forEach(c -> toSend.add(new Item(videoId, c))));
+        if (toSend.isEmpty())
+            return null;
+
+        String jobId = UUID.randomUUID().toString();
+        String jobVideoId = commentsByVideo.size() == 1 ? commentsByVideo.keySet().iterator().next() : null;
+        jobs.put(jobId, new Job(jobId, jobVideoId, toSend.size()));
+        for (int from = 0; from < toSend.size(); from += batchSize) {
+            List<Item> batch = toSend.subList(from, Math.min(from + batchSize, toSend.size()));
+            queue.append(encode(jobId, jobVideoId, toSend.size(), batch));
+        }
+        return jobId;
+    }
+
+    public JobStatus status(String jobId) {
+        Job job = jobs.getIfPresent(jobId);
+        return job == null ? null : job.status();
+    }
+
+    public Stats stats() {
+        if (!enabled)
+            return new Stats(false, 0, 0, 0, 0, 0, deadLettered.get());
+        AnalysisQueue.Stats q = queue.stats();
+        return new Stats(true, q.appended(), q.acked(), q.inFlight(), q.backlogBytes(), q.segments(), deadLettered.get());
+    }
+
+    public record Stats(boolean enabled, long enqueuedBatches, long completedBatches, int inFlightBatches,
+                        long backlogBytes, int segments, long deadLetteredBatches) {}
+
+    public record JobStatus(String jobId, String videoId, String state, int total, int analyzed, int failed) {}
+
+    // --- 워커 ---
+
+    private void work() {
+        while (running) {
+            AnalysisQueue.Entry entry;
+            try {
+                entry = queue.take(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == null)
+                continue;
+            try {
+                process(decode(entry.payload()));
+                queue.ack(entry.offset());
+            } catch (InterruptedException e) {
+                // ack 하지 않았으므로 재시작 후 다시 처리된다
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("analysis batch dropped offset={}", entry.offset(), e);
+                deadLettered.incrementAndGet();
+                queue.ack(entry.offset());
+            }
+        }
+    }
+
+    private void process(Batch batch) throws InterruptedException {
+        // 재시작 뒤 다시 읽은 배치면 job 상태를 레코드 정보로 되살린다
+        Job job = jobs.get(batch.jobId(), id -> new Job(id, batch.videoId(), batch.jobTotal()));
+
+        List<Item> remaining = batch.items();
+        for (int attempt = 1; ; attempt++) {
+            Map<String, Item> byId = new HashMap<>(remaining.size() * 2);
+            remaining.forEach(i -> byId.put(i.comment().getCommentId(), i));
+
+            // 큐 작업은 jobId 를 requestId 로 써서 FastAPI 쪽 Trace 와 span 에서 작업 단위로 찾을 수 있게 한다
+            AiSender.SendResult result = PipelineMetrics.withRequestId(aiSender.sendBatches(remaining.stream()
+                            .map(i -> new AiSender.CommentLite(i.comment().getCommentId(), i.comment().getText()))
+                            .toList()), batch.jobId())
+                    .doOnNext(b -> b.predictions().forEach((id, label) -> {
+                        Item i = byId.remove(id);
+                        if (i != null)
+                            i.comment().setSentiment(label);
+                    }))
+                    .reduce(new AiSender.SendResult(0, 0, 0, 0), AiSender.SendResult::plus)
+                    .block();
+
+            // 영상별로 나눠 저장소에 반영
+            Map<String, List<CommentDto>> analyzed = new HashMap<>();
+            for (Item i : remaining) {
+                if (i.comment().getSentiment() != null)
+                    analyzed.computeIfAbsent(i.videoId(), v -> new ArrayList<>()).add(i.comment());
+            }
+            analyzed.forEach((videoId, comments) -> {
+                syncStore.addSentiment(videoId, comments);
+                job.analyzed.addAndGet(comments.size());
+            });
+
+            List<Item> missing = new ArrayList<>(byId.values());
+            if (missing.isEmpty())
+                return;
+            if (result == null || result.otherError() == 0 || attempt >= maxAttempts) {
+                // 4xx 는 다시 보내도 같은 결과라 바로 실패 처리
+                job.failed.addAndGet(missing.size());
+                log.warn("analysis job {} gave up on {} comments after {} attempts", batch.jobId(), missing.size(), attempt);
+                return;
+            }
+            remaining = missing;
+            Thread.sleep(Math.min(60_000, backoffMs << Math.min(10, attempt - 1)));
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        for (Thread t : workers)
+            t.join(TimeUnit.SECONDS.toMillis(5));
+        if (queue != null)
+            queue.close();
+    }
+
+    // --- 레코드 인코딩 ---
+
+    private record Item(String videoId, CommentDto comment) {}
+
+    /** videoId 는 단일 영상 작업일 때만 (job 상태 표시용) */
+    private record Batch(String jobId, String videoId, int jobTotal, List<Item> items) {}
+
+    private static byte[] encode(String jobId, String videoId, int jobTotal, List<Item> items) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + items.size() * 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeString(out, jobId);
+            writeString(out, videoId);
+            out.writeInt(jobTotal);
+            out.writeInt(items.size());
+            for (Item i : items) {
+                writeString(out, i.videoId());
+                writeString(out, i.comment().getCommentId());
+                writeString(out, i.comment().getText());
+                writeString(out, i.comment().getPublishedAt());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Batch decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION)
+                throw new IllegalStateException("알 수 없는 큐 레코드 버전: " + version);
+            String jobId = readString(in);
+            String videoId = readString(in);
+            int jobTotal = in.readInt();
+            int n = in.readInt();
+            List<Item> items = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                String itemVideoId = readString(in);
+                String id = readString(in);
+                String text = readString(in);
+                String publishedAt = readString(in);
+                items.add(new Item(itemVideoId, new CommentDto(id, null, text, null, publishedAt)));
+            }
+            return new Batch(jobId, videoId, jobTotal, items);
+        } catch (IOException e) {
+            throw new UncheckedIOException("큐 레코드 디코딩 실패", e);
+        }
+    }
+
+    // writeUTF 는 64KB 제한이 있어 길이 + UTF-8 바이트로 쓴다 (-1 = null)
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0)
+            return null;
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static final class Job {
+        final String jobId;
+        final String videoId;
+        final int total;
+        final AtomicInteger analyzed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Job(String jobId, String videoId, int total) {
+            this.jobId = jobId;
+            this.videoId = videoId;
+            this.total = total;
+        }
+
+        JobStatus status() {
+            int a = analyzed.get();
+            int f = failed.get();
+            String state = a + f >= total ? (f == 0 ? "DONE" : "DONE_WITH_FAILURES")
+                    : a + f > 0 ? "RUNNING" : "PENDING";
+            return new JobStatus(jobId, videoId, state, total, a, f);
+        }
+    }
+}
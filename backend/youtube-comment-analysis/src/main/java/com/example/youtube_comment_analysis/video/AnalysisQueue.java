@@ -0,0 +1,235 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 파일 기반 append-only 큐. 고정 크기 세그먼트 파일을 mmap 해서 레코드를 뒤에 붙이기만 한다.
+ *
+ * - 오프셋은 전체 로그 기준 바이트 위치라서 세그먼트 번호 = offset / segmentBytes 로 바로 찾는다.
+ * - 레코드: [int 길이][int CRC32][payload]. 길이 0 은 "이 세그먼트 끝" 이며, 다 안 들어가면 다음 세그먼트로 넘어간다.
+ * - take 한 레코드는 ack 될 때까지 pending 에 남고, checkpoint 는 아직 ack 안 된 가장 앞 오프셋이다.
+ *   재시작하면 checkpoint 부터 다시 읽으므로 ack 전에 죽은 레코드는 다시 처리된다 (at-least-once).
+ * - 모든 레코드가 checkpoint 보다 앞인 세그먼트는 지운다.
+ *
+ * mmap 쓰기는 프로세스가 죽어도 페이지 캐시에 남지만, OS 장애까지 견디려면 fsync 를 켜야 한다 (append 마다 force).
+ */
+@Slf4j
+final class AnalysisQueue implements AutoCloseable {
+
+    private static final int HEADER = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    record Entry(long offset, byte[] payload) {}
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>(); // 세그먼트 번호 → 파일
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+    private final MappedByteBuffer checkpointFile;
+
+    // 아래 상태는 this 로 보호
+    private long writeOffset;
+    private long readOffset;
+    private long appended;
+    private long acked;
+
+    AnalysisQueue(Path dir, int segmentBytes, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve("checkpoint").toFile(), "rw")) {
+            raf.setLength(Long.BYTES);
+            this.checkpointFile = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                String name = p.getFileName().toString();
+                long index = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(index, Segment.open(p, segmentBytes));
+            }
+        }
+        recover();
+    }
+
+    // checkpoint 부터 마지막 세그먼트의 유효한 끝(길이 0 이거나 CRC 가 깨진 곳)까지 훑어 쓰기 위치를 찾는다
+    private void recover() throws IOException {
+        long checkpoint = checkpointFile.getLong(0);
+        if (segments.isEmpty()) {
+            long start = Math.max(0, checkpoint);
+            segment(start / segmentBytes);
+            readOffset = writeOffset = start;
+            return;
+        }
+        long first = segments.firstKey() * segmentBytes;
+        readOffset = Math.max(checkpoint, first);
+
+        long last = segments.lastKey();
+        long pos = Math.max(readOffset, last * segmentBytes);
+        while (true) {
+            byte[] payload = read(pos);
+            if (payload == null)
+                break;
+            pos = next(pos, payload.length);
+        }
+        writeOffset = pos;
+        if (readOffset > writeOffset)
+            readOffset = writeOffset;
+        log.info("analysis queue recovered dir={} checkpoint={} backlogBytes={}", dir, readOffset, writeOffset - readOffset);
+    }
+
+    synchronized long append(byte[] payload) {
+        int need = HEADER + payload.length;
+        if (need > segmentBytes - Integer.BYTES)
+            throw new IllegalArgumentException("큐 레코드가 세그먼트보다 큽니다: " + payload.length + " bytes");
+
+        int pos = (int) (writeOffset % segmentBytes);
+        if (pos + need > segmentBytes - Integer.BYTES) {
+            // 세그먼트 끝 표시(길이 0)는 새 파일이 0 으로 채워져 있어 따로 쓸 필요가 없다
+            Segment full = segment(writeOffset / segmentBytes);
+            full.buffer.force();
+            writeOffset = (writeOffset / segmentBytes + 1) * segmentBytes;
+            pos = 0;
+        }
+
+        Segment seg = segment(writeOffset / segmentBytes);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer b = seg.buffer.duplicate();
+        b.position(pos + Integer.BYTES);
+        b.putInt((int) crc.getValue());
+        b.put(payload);
+        // 길이를 마지막에 써야 읽는 쪽이 반쯤 쓰인 레코드를 보지 않는다
+        seg.buffer.putInt(pos, payload.length);
+        if (fsync)
+            seg.buffer.force();
+
+        long offset = writeOffset;
+        writeOffset += need;
+        appended++;
+        notifyAll();
+        return offset;
+    }
+
+    /** 다음 레코드. timeout 동안 없으면 null */
+    synchronized Entry take(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (readOffset >= writeOffset) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0)
+                return null;
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        byte[] payload = read(readOffset);
+        if (payload == null) {
+            // 세그먼트 끝: 다음 세그먼트 처음으로
+            readOffset = (readOffset / segmentBytes + 1) * segmentBytes;
+            return take(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        long offset = readOffset;
+        pending.add(offset);
+        readOffset = next(offset, payload.length);
+        return new Entry(offset, payload);
+    }
+
+    /** 처리가 끝난 레코드. checkpoint 를 앞으로 옮기고 다 지나간 세그먼트를 지운다 */
+    synchronized void ack(long offset) {
+        if (!pending.remove(offset))
+            return;
+        acked++;
+        long checkpoint = pending.isEmpty() ? readOffset : pending.first();
+        checkpointFile.putLong(0, checkpoint);
+        if (fsync)
+            checkpointFile.force();
+
+        long current = checkpoint / segmentBytes;
+        while (!segments.isEmpty() && segments.firstKey() < current) {
+            Segment done = segments.pollFirstEntry().getValue();
+            done.delete();
+        }
+    }
+
+    synchronized Stats stats() {
+        long checkpoint = pending.isEmpty() ? readOffset : pending.first();
+        return new Stats(appended, acked, pending.size(), writeOffset - checkpoint, segments.size());
+    }
+
+    record Stats(long appended, long acked, int inFlight, long backlogBytes, int segments) {}
+
+    @Override
+    public synchronized void close() {
+        checkpointFile.force();
+        segments.values().forEach(Segment::close);
+        segments.clear();
+    }
+
+    // offset 의 레코드 payload. 길이 0 / 범위 밖 / CRC 불일치면 null
+    private byte[] read(long offset) {
+        Segment seg = segments.get(offset / segmentBytes);
+        int pos = (int) (offset % segmentBytes);
+        if (seg == null || pos + HEADER > segmentBytes)
+            return null;
+        int length = seg.buffer.getInt(pos);
+        if (length <= 0 || pos + HEADER + length > segmentBytes)
+            return null;
+        int expected = seg.buffer.getInt(pos + Integer.BYTES);
+        byte[] payload = new byte[length];
+        seg.buffer.get(pos + HEADER, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == expected ? payload : null;
+    }
+
+    private static long next(long offset, int payloadLength) {
+        return offset + HEADER + payloadLength;
+    }
+
+    private Segment segment(long index) {
+        return segments.computeIfAbsent(index, i -> {
+            try {
+                return Segment.open(dir.resolve(String.format("%020d%s", i, SEGMENT_SUFFIX)), segmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("큐 세그먼트 생성 실패: " + i, e);
+            }
+        });
+    }
+
+    private record Segment(Path path, MappedByteBuffer buffer) {
+
+        static Segment open(Path path, int size) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
+                if (raf.length() < size)
+                    raf.setLength(size);
+                return new Segment(path, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        void close() {
+            buffer.force();
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("큐 세그먼트 삭제 실패 {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BatchVideoResponse {
+
+    private List<VideoResponse> videos;
+    // 모든 영상 댓글을 합친 활동 통계
+    private AnalysisDto combinedAnalysis;
+    // 모든 영상 누적 요약을 합친 것 (최근 24시간 / 30일 구간)
+    private RollupDto combinedRollup;
+    // 메타데이터가 없거나(삭제/비공개) 댓글 조회에 실패한 영상
+    private List<String> missingVideoIds;
+    // 여러 영상 댓글을 함께 묶어 큐로 넘긴 감성 분석 작업 id
+    private String analysisJobId;
+}
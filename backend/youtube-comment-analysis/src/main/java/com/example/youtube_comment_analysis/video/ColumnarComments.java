@@ -0,0 +1,311 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 댓글 수십만 개를 CommentDto 리스트 대신 열(column) 단위로 보관하는 저장소.
+ * - publishedAt(epoch 초), likeCount 는 long[]
+ * - 작성자와 답글의 부모 댓글 id 는 사전(dictionary) 인코딩해서 int[] 참조만 보관
+ * - commentId 와 본문은 하나의 UTF-8 바이트 아레나에 이어 붙이고 오프셋만 보관
+ * - commentId → 행 번호는 64bit 해시 기반 open addressing 인덱스
+ * 행은 추가 순서(오래된 것 → 최신)로 쌓이고, 응답에 필요할 때만 CommentDto 로 만든다. (thread-safe 하지 않음)
+ */
+final class ColumnarComments {
+
+    static final long NULL_LONG = Long.MIN_VALUE;
+    static final byte NO_SENTIMENT = -1;
+
+    private int size;
+    private long[] publishedAt = new long[16];
+    private long[] likeCount = new long[16];
+    private int[] author = new int[16];      // -1 = null
+    private int[] parent = new int[16];      // -1 = 최상위 댓글
+    private byte[] sentiment = new byte[16];
+    private int[] rowStart = new int[16];    // 아레나에서 행 시작 위치 (id 바이트 → 본문 바이트 순)
+    private int[] idLength = new int[16];
+    private int[] textLength = new int[16];  // -1 = null
+
+    private byte[] arena = new byte[4096];
+    private int arenaUsed;
+
+    private final List<String> authors = new ArrayList<>();
+    private final Map<String, Integer> authorIndex = new HashMap<>();
+    private final List<String> parents = new ArrayList<>();
+    private final Map<String, Integer> parentIndex = new HashMap<>();
+
+    // commentId 인덱스: 키는 id 해시, 값은 행 번호 + 1 (0 = 빈 칸)
+    private long[] indexKeys = new long[32];
+    private int[] indexRows = new int[32];
+
+    int size() {
+        return size;
+    }
+
+    /** 행 번호를 돌려준다. 같은 commentId 가 이미 있으면 -1 */
+    int append(CommentDto c) {
+        String id = c.getCommentId() == null ? "" : c.getCommentId();
+        if (rowOf(id) >= 0)
+            return -1;
+
+        ensureRows(size + 1);
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] textBytes = c.getText() == null ? null : c.getText().getBytes(StandardCharsets.UTF_8);
+        ensureArena(arenaUsed + idBytes.length + (textBytes == null ? 0 : textBytes.length));
+
+        int row = size++;
+        rowStart[row] = arenaUsed;
+        System.arraycopy(idBytes, 0, arena, arenaUsed, idBytes.length);
+        arenaUsed += idBytes.length;
+        idLength[row] = idBytes.length;
+        if (textBytes != null) {
+            System.arraycopy(textBytes, 0, arena, arenaUsed, textBytes.length);
+            arenaUsed += textBytes.length;
+            textLength[row] = textBytes.length;
+        } else {
+            textLength[row] = -1;
+        }
+
+        publishedAt[row] = c.getPublishedAt() == null ? NULL_LONG : ActivityStats.parseEpochSeconds(c.getPublishedAt());
+        likeCount[row] = c.getLikeCount() == null ? NULL_LONG : c.getLikeCount();
+        author[row] = ref(authors, authorIndex, c.getAuthor());
+        parent[row] = ref(parents, parentIndex, c.getParentId());
+        sentiment[row] = c.getSentiment() == null ? NO_SENTIMENT : c.getSentiment().byteValue();
+
+        indexPut(hash(id), row);
+        return row;
+    }
+
+    long publishedAt(int row) {
+        return publishedAt[row];
+    }
+
+    long likeCount(int row) {
+        return likeCount[row];
+    }
+
+    byte sentiment(int row) {
+        return sentiment[row];
+    }
+
+    void setSentiment(int row, int label) {
+        sentiment[row] = (byte) label;
+    }
+
+    String commentId(int row) {
+        return new String(arena, rowStart[row], idLength[row], StandardCharsets.UTF_8);
+    }
+
+    String text(int row) {
+        int len = textLength[row];
+        return len < 0 ? null : new String(arena, rowStart[row] + idLength[row], len, StandardCharsets.UTF_8);
+    }
+
+    String author(int row) {
+        int ref = author[row];
+        return ref < 0 ? null : authors.get(ref);
+    }
+
+    String parentId(int row) {
+        int ref = parent[row];
+        return ref < 0 ? null : parents.get(ref);
+    }
+
+    CommentDto toDto(int row) {
+        long t = publishedAt[row];
+        long likes = likeCount[row];
+        byte label = sentiment[row];
+        return new CommentDto(
+                commentId(row),
+                author(row),
+                text(row),
+                likes == NULL_LONG ? null : likes,
+                t == NULL_LONG ? null : DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(t)),
+                label == NO_SENTIMENT ? null : (int) label,
+                parentId(row));
+    }
+
+    int rowOf(String commentId) {
+        long h = hash(commentId);
+        int mask = indexKeys.length - 1;
+        for (int i = (int) (mix(h) & mask); indexRows[i] != 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == h) {
+                int row = indexRows[i] - 1;
+                if (idEquals(row, commentId))
+                    return row;
+            }
+        }
+        return -1;
+    }
+
+    // commentId.equals(commentId(row)) 와 같지만 String 을 만들지 않고 아레나의 UTF-8 바이트와 바로 비교한다
+    boolean idEquals(int row, String commentId) {
+        int p = rowStart[row];
+        int end = p + idLength[row];
+        for (int i = 0; i < commentId.length(); ) {
+            int cp = commentId.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp <= 0xFFFF && Character.isSurrogate((char) cp))
+                cp = '?'; // getBytes 는 짝이 없는 surrogate 를 '?' 로 바꿔 저장한다
+            if (cp < 0x80) {
+                if (p == end || arena[p++] != cp)
+                    return false;
+                continue;
+            }
+            int n = cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (end - p < n)
+                return false;
+            int shift = 6 * (n - 1);
+            if (arena[p++] != (byte) (((0xFF << (8 - n)) & 0xFF) | (cp >> shift)))
+                return false;
+            while ((shift -= 6) >= 0) {
+                if (arena[p++] != (byte) (0x80 | ((cp >> shift) & 0x3F)))
+                    return false;
+            }
+        }
+        return p == end;
+    }
+
+    /** 최신 keep 개 행만 남긴다. 아레나도 남은 구간만 복사하고 사전/인덱스는 다시 만든다. */
+    void keepLast(int keep) {
+        if (keep >= size)
+            return;
+        int from = size - keep;
+        int arenaFrom = rowStart[from];
+
+        publishedAt = Arrays.copyOfRange(publishedAt, from, from + capacityFor(keep));
+        likeCount = Arrays.copyOfRange(likeCount, from, from + capacityFor(keep));
+        sentiment = Arrays.copyOfRange(sentiment, from, from + capacityFor(keep));
+        idLength = Arrays.copyOfRange(idLength, from, from + capacityFor(keep));
+        textLength = Arrays.copyOfRange(textLength, from, from + capacityFor(keep));
+        int[] oldAuthor = Arrays.copyOfRange(author, from, from + capacityFor(keep));
+        int[] oldParent = Arrays.copyOfRange(parent, from, from + capacityFor(keep));
+        int[] oldStart = Arrays.copyOfRange(rowStart, from, from + capacityFor(keep));
+
+        arena = Arrays.copyOfRange(arena, arenaFrom, arenaFrom + Math.max(4096, (arenaUsed - arenaFrom) * 2));
+        arenaUsed -= arenaFrom;
+
+        List<String> oldAuthors = new ArrayList<>(authors);
+        List<String> oldParents = new ArrayList<>(parents);
+        authors.clear();
+        authorIndex.clear();
+        parents.clear();
+        parentIndex.clear();
+        size = keep;
+        author = new int[oldAuthor.length];
+        parent = new int[oldParent.length];
+        rowStart = new int[oldStart.length];
+        indexKeys = new long[tableSizeFor(keep)];
+        indexRows = new int[indexKeys.length];
+        for (int row = 0; row < keep; row++) {
+            rowStart[row] = oldStart[row] - arenaFrom;
+            author[row] = oldAuthor[row] < 0 ? -1 : ref(authors, authorIndex, oldAuthors.get(oldAuthor[row]));
+            parent[row] = oldParent[row] < 0 ? -1 : ref(parents, parentIndex, oldParents.get(oldParent[row]));
+            indexPut(hash(commentId(row)), row);
+        }
+    }
+
+    /** 대략적인 보관 바이트 수 (캐시 weigher 용) */
+    long memoryBytes() {
+        long perRow = 8 + 8 + 4 + 4 + 1 + 4 + 4 + 4;
+        return perRow * publishedAt.length + arena.length + 12L * indexKeys.length
+                + 48L * (authors.size() + parents.size());
+    }
+
+    private static int ref(List<String> values, Map<String, Integer> index, String value) {
+        if (value == null)
+            return -1;
+        Integer ref = index.get(value);
+        if (ref == null) {
+            ref = values.size();
+            values.add(value);
+            index.put(value, ref);
+        }
+        return ref;
+    }
+
+    private void ensureRows(int needed) {
+        if (needed <= publishedAt.length)
+            return;
+        int cap = capacityFor(needed);
+        publishedAt = Arrays.copyOf(publishedAt, cap);
+        likeCount = Arrays.copyOf(likeCount, cap);
+        author = Arrays.copyOf(author, cap);
+        parent = Arrays.copyOf(parent, cap);
+        sentiment = Arrays.copyOf(sentiment, cap);
+        rowStart = Arrays.copyOf(rowStart, cap);
+        idLength = Arrays.copyOf(idLength, cap);
+        textLength = Arrays.copyOf(textLength, cap);
+    }
+
+    private void ensureArena(int needed) {
+        if (needed > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(needed, arena.length * 2));
+    }
+
+    private void indexPut(long h, int row) {
+        if ((size + 1) * 2 > indexKeys.length)
+            rehash(indexKeys.length * 2);
+        int mask = indexKeys.length - 1;
+        int i = (int) (mix(h) & mask);
+        while (indexRows[i] != 0)
+            i = (i + 1) & mask;
+        indexKeys[i] = h;
+        indexRows[i] = row + 1;
+    }
+
+    private void rehash(int newSize) {
+        long[] oldKeys = indexKeys;
+        int[] oldRows = indexRows;
+        indexKeys = new long[newSize];
+        indexRows = new int[newSize];
+        int mask = newSize - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldRows[j] == 0)
+                continue;
+            int i = (int) (mix(oldKeys[j]) & mask);
+            while (indexRows[i] != 0)
+                i = (i + 1) & mask;
+            indexKeys[i] = oldKeys[j];
+            indexRows[i] = oldRows[j];
+        }
+    }
+
+    private static int capacityFor(int rows) {
+        return Math.max(16, rows + (rows >> 1));
+    }
+
+    private static int tableSizeFor(int rows) {
+        int n = 32;
+        while (n < rows * 2 + 2)
+            n <<= 1;
+        return n;
+    }
+
+    // FNV-1a (commentId 코드 포인트). idEquals 와 같게 짝 없는 surrogate 는 '?' 로 보고 센다
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp <= 0xFFFF && Character.isSurrogate((char) cp))
+                cp = '?';
+            h ^= cp;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -14,4 +14,14 @@ public class CommentDto {
     private String text;
     private Long likeCount;
     private String publishedAt;
+
+    // 감성 분석 결과 라벨 (분석 전/실패 시 null)
+    private Integer sentiment;
+
+    // 답글이면 부모(최상위) 댓글 id, 최상위 댓글이면 null
+    private String parentId;
+
+    public CommentDto(String commentId, String author, String text, Long likeCount, String publishedAt) {
+        this(commentId, author, text, likeCount, publishedAt, null, null);
+    }
 }
@@ -0,0 +1,56 @@
+package com.example.youtube_comment_analysis.video;
+
+/**
+ * 답글 펼치기에서 중복 commentId 를 거르는 집합.
+ * 문자열 대신 64bit 해시만 long[] open addressing 으로 보관하므로 원소당 16바이트 정도다.
+ * 해시가 같으면 같은 id 로 보는데, 페이지 하나(수천 개) 규모에서 64bit 충돌은 무시할 수 있다. (thread-safe 하지 않음)
+ */
+final class CommentIdSet {
+
+    private long[] keys; // 0 = 빈 칸
+    private int size;
+
+    CommentIdSet(int expected) {
+        int n = 16;
+        while (n < expected * 2)
+            n <<= 1;
+        keys = new long[n];
+    }
+
+    /** 처음 본 id 면 true */
+    boolean add(String commentId) {
+        long h = HyperLogLog.hash64(commentId == null ? "" : commentId);
+        if (h == 0)
+            h = 1;
+        if ((size + 1) * 2 > keys.length)
+            rehash(keys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = (int) h & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == h)
+                return false;
+            if (keys[i] == 0) {
+                keys[i] = h;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash(int newSize) {
+        long[] old = keys;
+        keys = new long[newSize];
+        int mask = newSize - 1;
+        for (long h : old) {
+            if (h == 0)
+                continue;
+            int i = (int) h & mask;
+            while (keys[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = h;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 영상별 증분 동기화 상태.
+ * 워터마크(가장 최근 publishedAt / commentId)와 지금까지 받은 댓글을 들고 있어서
+ * 다시 조회할 때는 워터마크에 닿을 때까지의 새 댓글만 받아 병합하면 된다.
+ * 댓글은 ColumnarComments 에 열 단위로 보관하고, 캐시 크기는 영상 수가 아니라 보관 바이트 수로 제한한다.
+ * 활동/감성 누적 요약은 VideoRollups 에 따로 두어, 새로 들어온 댓글과 처음 붙은 감성 라벨만 더한다.
+ */
+@Component
+public class CommentSyncStore {
+
+    private final Cache<String, VideoComments> videos;
+    private final int maxCommentsPerVideo;
+    private final VideoRollups rollups;
+
+    public CommentSyncStore(
+            @Value("${youtube.sync.max-bytes:536870912}") long maxBytes,
+            @Value("${youtube.sync.max-comments-per-video:200000}") int maxCommentsPerVideo,
+            @Value("${youtube.sync.idle-ttl-sec:86400}") long idleTtlSec,
+            VideoRollups rollups) {
+        this.maxCommentsPerVideo = maxCommentsPerVideo;
+        this.rollups = rollups;
+        this.videos = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String id, VideoComments v) -> (int) Math.min(Integer.MAX_VALUE, v.weight()))
+                .expireAfterAccess(Duration.ofSeconds(idleTtlSec))
+                .build();
+    }
+
+    /** 병합 결과. added 는 이번에 처음 본 댓글, comments 는 최신순 상위 limit 개. */
+    public record Delta(List<CommentDto> added, List<CommentDto> comments, AnalysisDto analysis) {}
+
+    VideoComments get(String videoId) {
+        return videos.getIfPresent(videoId);
+    }
+
+    /**
+     * fresh 는 최신순(order=time) 으로 받은 새 댓글.
+     * contiguous 가 false 면 (워터마크에 닿기 전에 limit 을 다 채움) 기존 상태와 이어지지 않으므로 새로 시작한다.
+     */
+    Delta merge(String videoId, List<CommentDto> fresh, boolean contiguous, int limit) {
+        if (!contiguous)
+            videos.invalidate(videoId);
+        VideoComments state = videos.get(videoId, id -> {
+            // 이 영상의 commentId 인덱스를 새로 시작하므로, 요약에 이미 센 댓글을 다시 세지 않게 울타리를 세운다
+            rollups.fence(id);
+            return new VideoComments(maxCommentsPerVideo);
+        });
+        VideoRollup rollup = rollups.get(videoId, state::backfill);
+        Delta delta = state.merge(fresh, limit, rollup);
+        videos.put(videoId, state); // 커진 크기로 weight 다시 계산
+        return delta;
+    }
+
+    /** 댓글 기간 동안 오프셋이 고정인 시간대는 누적 요약에서 바로 만들고, DST 전환이 끼는 경우만 보관 중인 댓글로 다시 계산한다. */
+    AnalysisDto analysis(String videoId, ZoneId zone) {
+        AnalysisDto fast = rollups.analysis(videoId, zone);
+        if (fast != null)
+            return fast;
+        VideoComments state = videos.getIfPresent(videoId);
+        return state == null ? new ActivityStats(zone).toDto() : state.analysis(zone);
+    }
+
+    /** 여러 영상 합산 활동 통계. analysis 와 같은 기준으로 요약을 먼저 쓴다 */
+    AnalysisDto combinedAnalysis(List<String> videoIds, ZoneId zone) {
+        AnalysisDto fast = rollups.combined(videoIds).toAnalysis(zone);
+        if (fast != null)
+            return fast;
+        ActivityStats combined = new ActivityStats(zone);
+        videoIds.forEach(id -> collectActivity(id, combined));
+        return combined.toDto();
+    }
+
+    /** 여러 영상 누적 요약을 합친 것. 구간은 최근 24시간 / 30일 */
+    RollupDto rollup(List<String> videoIds) {
+        return rollups.combined(videoIds).toDto(System.currentTimeMillis() / 1000, 24, 30);
+    }
+
+    /**
+     * 감성 분석이 끝난 댓글을 영상 누적 감성 통계에 반영.
+     * 보관 중인 댓글이 없으면(재시작 뒤 큐가 다시 보낸 배치, 댓글만 만료된 경우) 라벨은 누적 요약에만 남긴다.
+     * 요약은 snapshot-file 을 설정하면 재시작 후에도 남으므로 큐 재전달 결과가 버려지지 않는다.
+     */
+    SentimentDto addSentiment(String videoId, List<CommentDto> analyzed) {
+        VideoComments state = videos.getIfPresent(videoId);
+        if (state == null) {
+            VideoRollup rollup = rollups.getIfPresent(videoId);
+            SentimentStats stats = new SentimentStats();
+            for (CommentDto c : analyzed) {
+                stats.add(c);
+                if (rollup != null && c.getSentiment() != null)
+                    rollup.addReplayedSentiment(c.getPublishedAt() == null ? ColumnarComments.NULL_LONG
+                            : ActivityStats.parseEpochSeconds(c.getPublishedAt()), c.getSentiment());
+            }
+            return stats.toDto();
+        }
+        return state.addSentiment(analyzed, rollups.getIfPresent(videoId));
+    }
+
+    /** 보관 중인 댓글 시각을 into 에 더한다 (여러 영상 합산 통계용) */
+    void collectActivity(String videoId, ActivityStats into) {
+        VideoComments state = videos.getIfPresent(videoId);
+        if (state != null)
+            state.collectActivity(into);
+    }
+
+    /** 지금까지 반영된 누적 감성 통계 (분석 결과가 아직 없으면 null) */
+    SentimentDto sentiment(String videoId) {
+        VideoComments state = videos.getIfPresent(videoId);
+        return state == null ? null : state.sentiment();
+    }
+
+    static final class VideoComments {
+        private final int maxComments;
+        private final ColumnarComments comments = new ColumnarComments(); // 오래된 것 → 최신 순
+        private final SentimentStats sentiment = new SentimentStats();
+        private long watermark = Long.MIN_VALUE; // 가장 최근 댓글 시각 (epoch 초)
+        private String watermarkId;
+
+        VideoComments(int maxComments) {
+            this.maxComments = maxComments;
+        }
+
+        /** 이미 받은 댓글이거나 워터마크보다 오래된 댓글이면 true (여기서 페이지 순회를 멈춘다) */
+        synchronized boolean isKnown(CommentDto c) {
+            if (c.getCommentId().equals(watermarkId) || comments.rowOf(c.getCommentId()) >= 0)
+                return true;
+            return watermark != Long.MIN_VALUE && c.getPublishedAt() != null
+                    && ActivityStats.parseEpochSeconds(c.getPublishedAt()) < watermark;
+        }
+
+        synchronized Delta merge(List<CommentDto> fresh, int limit, VideoRollup rollup) {
+            List<CommentDto> added = new ArrayList<>();
+            // fresh 가 최신순이므로 뒤에서부터 붙여야 저장소가 시간순이 된다
+            for (int i = fresh.size() - 1; i >= 0; i--) {
+                CommentDto c = fresh.get(i);
+                int row = comments.append(c);
+                if (row < 0)
+                    continue;
+                long t = comments.publishedAt(row);
+                rollup.add(t, comments.likeCount(row), c.getAuthor());
+                if (t != ColumnarComments.NULL_LONG && t >= watermark) {
+                    watermark = t;
+                    watermarkId = c.getCommentId();
+                }
+                added.add(c);
+            }
+            // 매번 줄이지 않고 25% 넘게 초과했을 때 한 번에 압축
+            if (comments.size() > maxComments + maxComments / 4)
+                comments.keepLast(maxComments);
+
+            // added 는 원래 순서(최신순)로 돌려준다
+            Collections.reverse(added);
+
+            // 응답용 상위 limit 개: 새 댓글은 받은 객체를 그대로 쓰고(감성 결과가 여기에 붙음),
+            // 그보다 오래된 것만 저장소에서 CommentDto 로 만든다
+            int n = Math.min(limit, comments.size());
+            List<CommentDto> top = new ArrayList<>(n);
+            for (int i = 0; i < added.size() && top.size() < n; i++)
+                top.add(added.get(i));
+            for (int row = comments.size() - 1 - top.size(); row >= 0 && top.size() < n; row--)
+                top.add(comments.toDto(row));
+
+            return new Delta(added, top, rollup.toAnalysis(ZoneOffset.UTC));
+        }
+
+        /** 요약이 새로 만들어졌을 때 (요약만 만료된 경우) 보관 중인 댓글과 라벨로 채운다 */
+        synchronized void backfill(VideoRollup rollup) {
+            for (int row = 0; row < comments.size(); row++) {
+                long t = comments.publishedAt(row);
+                rollup.add(t, comments.likeCount(row), comments.author(row));
+                if (comments.sentiment(row) != ColumnarComments.NO_SENTIMENT)
+                    rollup.addSentiment(t, comments.sentiment(row));
+            }
+        }
+
+        synchronized AnalysisDto analysis(ZoneId zone) {
+            ActivityStats stats = new ActivityStats(zone);
+            collectActivity(stats);
+            return stats.toDto();
+        }
+
+        synchronized void collectActivity(ActivityStats into) {
+            for (int row = 0; row < comments.size(); row++) {
+                long t = comments.publishedAt(row);
+                if (t != ColumnarComments.NULL_LONG)
+                    into.add(t);
+            }
+        }
+
+        synchronized SentimentDto addSentiment(List<CommentDto> analyzed, VideoRollup rollup) {
+            for (CommentDto c : analyzed) {
+                if (c.getSentiment() == null)
+                    continue;
+                int row = comments.rowOf(c.getCommentId());
+                if (row >= 0) {
+                    // 큐는 at-least-once 라 같은 댓글이 다시 올 수 있다. 같은 라벨이면 무시하고,
+                    // 라벨이 바뀌었으면 이전 라벨을 빼고 새 라벨을 더한다
+                    int label = c.getSentiment();
+                    byte old = comments.sentiment(row);
+                    if (old == label)
+                        continue;
+                    long t = comments.publishedAt(row);
+                    if (old == ColumnarComments.NO_SENTIMENT) {
+                        if (rollup != null)
+                            rollup.addSentiment(t, label);
+                    } else {
+                        sentiment.remove(t, old);
+                        if (rollup != null)
+                            rollup.replaceSentiment(t, old, label);
+                    }
+                    comments.setSentiment(row, label);
+                    sentiment.add(t, label);
+                } else {
+                    sentiment.add(c);
+                }
+            }
+            return sentiment.toDto();
+        }
+
+        synchronized SentimentDto sentiment() {
+            return sentiment.toDto();
+        }
+
+        synchronized long weight() {
+            return comments.memoryBytes();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * commentThreads 응답을 JsonNode 트리 없이 토큰 단위로 읽어 CommentDto 로 바로 변환한다.
+ * replies 서브트리는 includeReplies 가 true 일 때만 읽고, 아니면 skipChildren 으로 건너뛴다.
+ * 인라인 replies 는 스레드당 최대 5개라서, totalReplyCount 가 그보다 많은 스레드는 partialThreads 에 최상위 댓글 id 로 담는다.
+ * /comments?parentId= 응답(답글 목록)은 parseReplies 로 읽는다.
+ */
+final class CommentThreadsParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private CommentThreadsParser() {}
+
+    record Page(List<CommentDto> comments, String nextPageToken, List<String> partialThreads) {}
+
+    static Page parse(InputStream in, boolean includeReplies) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            return parse(p, includeReplies);
+        }
+    }
+
+    static Page parse(byte[] json, boolean includeReplies) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            return parse(p, includeReplies);
+        }
+    }
+
+    private static Page parse(JsonParser p, boolean includeReplies) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("commentThreads 응답이 JSON 객체가 아닙니다");
+        }
+
+        List<CommentDto> comments = new ArrayList<>();
+        List<String> partialThreads = new ArrayList<>();
+        String nextPageToken = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+
+            if ("nextPageToken".equals(field)) {
+                nextPageToken = p.getValueAsString();
+            } else if ("items".equals(field) && t == JsonToken.START_ARRAY) {
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    readThread(p, comments, partialThreads, includeReplies);
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new Page(comments, nextPageToken, partialThreads);
+    }
+
+    /** comments 리소스 목록 (/comments?parentId=). items[] 가 곧 댓글이다 */
+    static Page parseReplies(byte[] json) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("comments 응답이 JSON 객체가 아닙니다");
+            }
+
+            List<CommentDto> comments = new ArrayList<>();
+            String nextPageToken = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+
+                if ("nextPageToken".equals(field)) {
+                    nextPageToken = p.getValueAsString();
+                } else if ("items".equals(field) && t == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        comments.add(readComment(p));
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return new Page(comments, nextPageToken, List.of());
+        }
+    }
+
+    // items[] 의 원소 하나 (commentThread)
+    private static void readThread(JsonParser p, List<CommentDto> out, List<String> partialThreads,
+                                   boolean includeReplies) throws IOException {
+        CommentDto top = null;
+        List<CommentDto> replies = null;
+        long totalReplyCount = 0;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+
+            if ("snippet".equals(field) && t == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String sf = p.currentName();
+                    JsonToken st = p.nextToken();
+                    if ("topLevelComment".equals(sf) && st == JsonToken.START_OBJECT) {
+                        top = readComment(p);
+                    } else if ("totalReplyCount".equals(sf)) {
+                        totalReplyCount = p.getValueAsLong(0);
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            } else if (includeReplies && "replies".equals(field) && t == JsonToken.START_OBJECT) {
+                replies = readReplies(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+
+        if (top != null)
+            out.add(top);
+        if (replies != null) {
+            for (CommentDto r : replies) {
+                if (r.getParentId() == null && top != null)
+                    r.setParentId(top.getCommentId());
+                out.add(r);
+            }
+        }
+        if (includeReplies && top != null && totalReplyCount > (replies == null ? 0 : replies.size()))
+            partialThreads.add(top.getCommentId());
+    }
+
+    // replies: { "comments": [ ... ] }
+    private static List<CommentDto> readReplies(JsonParser p) throws IOException {
+        List<CommentDto> replies = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("comments".equals(field) && t == JsonToken.START_ARRAY) {
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    replies.add(readComment(p));
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return replies;
+    }
+
+    // comment 리소스: { "id": ..., "snippet": { ... } }
+    private static CommentDto readComment(JsonParser p) throws IOException {
+        CommentDto c = new CommentDto();
+        c.setCommentId("");
+        c.setLikeCount(0L);
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+
+            if ("id".equals(field)) {
+                c.setCommentId(p.getValueAsString(""));
+            } else if ("snippet".equals(field) && t == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String sf = p.currentName();
+                    p.nextToken();
+                    switch (sf) {
+                        case "authorDisplayName" -> c.setAuthor(p.getValueAsString());
+                        case "textDisplay" -> c.setText(p.getValueAsString());
+                        case "likeCount" -> c.setLikeCount(p.getValueAsLong(0));
+                        case "publishedAt" -> c.setPublishedAt(p.getValueAsString());
+                        case "parentId" -> c.setParentId(p.getValueAsString());
+                        default -> p.skipChildren();
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return c;
+    }
+}
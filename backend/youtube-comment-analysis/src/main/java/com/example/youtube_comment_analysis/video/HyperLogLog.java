@@ -0,0 +1,93 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 고유 작성자 수 근사용 HyperLogLog. 레지스터 2^precision 개(바이트 하나씩)라서 크기가 고정이고,
+ * 같은 precision 끼리는 레지스터별 max 로 병합된다. precision 12 면 4KB, 표준 오차 약 1.6%.
+ * (thread-safe 하지 않음)
+ */
+final class HyperLogLog {
+
+    static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18)
+            throw new IllegalArgumentException("HyperLogLog precision 은 4~18: " + precision);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    void add(String value) {
+        if (value == null)
+            return;
+        long h = hash64(value);
+        int index = (int) (h >>> (64 - precision));
+        // 남은 비트에서 첫 1 의 위치. 끝에 1 을 하나 박아 두어 최대값을 64 - precision + 1 로 제한한다
+        long w = (h << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(w) + 1);
+        if (rank > registers[index])
+            registers[index] = rank;
+    }
+
+    long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0)
+                zeros++;
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double e = alpha * m * m / sum;
+        // 작은 범위는 linear counting 이 더 정확하다 (64bit 해시라 큰 범위 보정은 필요 없음)
+        if (e <= 2.5 * m && zeros > 0)
+            e = m * Math.log((double) m / zeros);
+        return Math.round(e);
+    }
+
+    void merge(HyperLogLog other) {
+        if (other.precision != precision)
+            throw new IllegalArgumentException("precision 이 다른 HyperLogLog 는 병합할 수 없습니다");
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i])
+                registers[i] = other.registers[i];
+        }
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(precision);
+        out.write(registers);
+    }
+
+    static HyperLogLog readFrom(DataInput in) throws IOException {
+        HyperLogLog hll = new HyperLogLog(in.readUnsignedByte());
+        in.readFully(hll.registers);
+        return hll;
+    }
+
+    // FNV-1a 64 로 문자를 접고 murmur3 fmix64 로 비트를 고르게 섞는다
+    static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
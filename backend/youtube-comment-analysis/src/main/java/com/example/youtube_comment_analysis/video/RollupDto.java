@@ -0,0 +1,35 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class RollupDto {
+
+    // 지금까지 집계된 댓글 수 (보관 개수 제한과 무관하게 누적)
+    private final Long commentCount;
+
+    // 댓글을 처음 받았을 때의 좋아요 수 합계
+    private final Long likeTotal;
+
+    // 고유 작성자 수 (HyperLogLog 근사, 오차 약 1.6%)
+    private final Long distinctAuthors;
+
+    // 라벨(0, 1, 2)별 감성 분석이 끝난 댓글 수
+    private final List<Long> labelCounts;
+
+    private final String firstCommentAt;
+    private final String lastCommentAt;
+
+    // 최근 시간 단위 구간 (오래된 것 → 최신, UTC 정시 기준)
+    private final List<Window> hourly;
+
+    // 최근 일 단위 구간 (오래된 것 → 최신, UTC 자정 기준)
+    private final List<Window> daily;
+
+    /** start 는 구간 시작 시각(ISO-8601), labelCounts 는 그 구간에 작성된 댓글의 라벨별 개수 */
+    public record Window(String start, long comments, long likes, List<Integer> labelCounts) {}
+}
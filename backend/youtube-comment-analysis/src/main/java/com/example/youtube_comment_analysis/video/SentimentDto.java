@@ -0,0 +1,25 @@
+package com.example.youtube_comment_analysis.video;
+
+import lombok.Builder;
+import lombok.Getter;
+import java.util.List;
+
+@Getter
+@Builder
+public class SentimentDto {
+
+    // 감성 분석이 끝난 댓글 수
+    private final Long analyzedCount;
+
+    // 라벨(0, 1, 2)별 댓글 수 - 인덱스가 모델의 라벨 번호
+    private final List<Long> labelCounts;
+
+    // 라벨별 비율
+    private final List<Double> labelRatios;
+
+    // 가장 많은 라벨
+    private final Integer dominantLabel;
+
+    // 0시부터 23시까지 시간대별 라벨 개수 [hour][label]
+    private final List<List<Integer>> hourlyLabelCounts;
+}
@@ -0,0 +1,78 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 감성 라벨 누적기. ActivityStats 와 같은 방식으로 분석이 끝난 댓글을 add 해서 접어 넣는다.
+ * 라벨 수는 모델 config.json 의 id2label (LABEL_0 ~ LABEL_2) 기준. (thread-safe 하지 않음)
+ */
+final class SentimentStats {
+
+    static final int LABELS = 3;
+
+    private final long[] labelCounts = new long[LABELS];
+    private final int[][] hourlyLabelCounts = new int[24][LABELS];
+    private long count;
+
+    void add(CommentDto comment) {
+        Integer label = comment.getSentiment();
+        if (label == null)
+            return;
+        String publishedAt = comment.getPublishedAt();
+        add(publishedAt == null ? ColumnarComments.NULL_LONG : ActivityStats.parseEpochSeconds(publishedAt), label);
+    }
+
+    // 시간대 구간은 ActivityStats 기본값과 같은 UTC 기준
+    void add(long epochSecond, int label) {
+        if (label < 0 || label >= LABELS)
+            return;
+
+        labelCounts[label]++;
+        count++;
+        if (epochSecond != ColumnarComments.NULL_LONG)
+            hourlyLabelCounts[(int) (Math.floorMod(epochSecond, 86400) / 3600)][label]++;
+    }
+
+    /** 이미 센 라벨을 뺀다 (같은 댓글의 라벨이 바뀌었을 때) */
+    void remove(long epochSecond, int label) {
+        if (label < 0 || label >= LABELS || labelCounts[label] == 0)
+            return;
+
+        labelCounts[label]--;
+        count--;
+        if (epochSecond != ColumnarComments.NULL_LONG) {
+            int[] row = hourlyLabelCounts[(int) (Math.floorMod(epochSecond, 86400) / 3600)];
+            if (row[label] > 0)
+                row[label]--;
+        }
+    }
+
+    SentimentDto toDto() {
+        List<Long> counts = new ArrayList<>(LABELS);
+        List<Double> ratios = new ArrayList<>(LABELS);
+        int dominant = 0;
+        for (int l = 0; l < LABELS; l++) {
+            counts.add(labelCounts[l]);
+            ratios.add(count == 0 ? 0.0 : (double) labelCounts[l] / count);
+            if (labelCounts[l] > labelCounts[dominant])
+                dominant = l;
+        }
+
+        List<List<Integer>> hourly = new ArrayList<>(24);
+        for (int h = 0; h < 24; h++) {
+            List<Integer> row = new ArrayList<>(LABELS);
+            for (int l = 0; l < LABELS; l++)
+                row.add(hourlyLabelCounts[h][l]);
+            hourly.add(row);
+        }
+
+        return SentimentDto.builder()
+                .analyzedCount(count)
+                .labelCounts(counts)
+                .labelRatios(ratios)
+                .dominantLabel(count == 0 ? null : dominant)
+                .hourlyLabelCounts(hourly)
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+/**
+ * 같은 키로 동시에 들어온 요청이 하나의 파이프라인을 공유하게 한다 (single-flight).
+ * 진행 중인 작업이 끝나면 맵에서 빠지므로, 그 뒤의 요청은 새로 실행된다 (결과 캐싱은 하지 않음).
+ */
+final class SingleFlight<K, V> {
+
+    // 스트림 구독자 하나가 밀려도 쌓아 둘 수 있는 이벤트 수. 넘치면 그 구독자만 끊는다
+    static final int DEFAULT_SUBSCRIBER_BUFFER = 256;
+
+    private final ConcurrentHashMap<K, Mono<V>> monos = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Flight<V>> fluxes = new ConcurrentHashMap<>();
+    private final int subscriberBuffer;
+
+    SingleFlight() {
+        this(DEFAULT_SUBSCRIBER_BUFFER);
+    }
+
+    SingleFlight(int subscriberBuffer) {
+        this.subscriberBuffer = Math.max(16, subscriberBuffer);
+    }
+
+    Mono<V> join(K key, Supplier<Mono<V>> work) {
+        return Mono.defer(() -> monos.computeIfAbsent(key, k -> work.get()
+                .doOnTerminate(() -> monos.remove(k)) // 구독자에게 결과가 가기 전에 빼야 끝난 flight 에 다시 붙지 않는다
+                .cache()));
+    }
+
+    /**
+     * 스트림 버전. 지나간 이벤트를 전부 replay 하면 댓글 페이지가 flight 가 끝날 때까지 메모리에 쌓이므로,
+     * slotOf 가 같은 값을 돌려주는 이벤트 중 마지막 것만 남겨 늦게 붙은 구독자에게 먼저 보내고 이어서 실시간 이벤트를 보낸다.
+     * slotOf 가 null 을 돌려주는 이벤트는 남기지 않는다. 남는 이벤트 수는 슬롯 수로 제한된다.
+     * 구독자마다 버퍼는 subscriberBuffer 개까지이고, 넘치면 그 구독자만 오류로 끊어 다른 구독자와 메모리를 지킨다.
+     * 구독자가 모두 끊으면 파이프라인도 취소한다. 그 뒤 같은 키로 들어온 요청은 새로 실행된다.
+     */
+    Flux<V> joinMany(K key, Supplier<Flux<V>> work, Function<? super V, ?> slotOf) {
+        return Flux.defer(() -> {
+            while (true) {
+                Flight<V> flight = fluxes.computeIfAbsent(key, k -> new Flight<>(slotOf, subscriberBuffer));
+                Flux<V> joined = flight.join(() -> work.get()
+                        .doOnTerminate(() -> fluxes.remove(key, flight))
+                        .doOnCancel(() -> fluxes.remove(key, flight)));
+                if (joined != null)
+                    return joined;
+                fluxes.remove(key, flight); // 막 끝났거나 취소된 flight 에는 붙지 않는다
+            }
+        });
+    }
+
+    /** 구독자가 버퍼를 다 채울 만큼 느려서 끊을 때 */
+    static final class SlowSubscriberException extends IllegalStateException {
+        SlowSubscriberException(int buffer) {
+            super("스트림 구독자가 너무 느려 연결을 끊습니다 (버퍼 " + buffer + "개 초과)");
+        }
+    }
+
+    private static final class Flight<V> {
+
+        private final Function<? super V, ?> slotOf;
+        private final int buffer;
+        private final Map<Object, V> latest = new LinkedHashMap<>(); // 슬롯별 마지막 이벤트, 처음 나온 순서대로
+        private final List<Sinks.Many<V>> subscribers = new ArrayList<>();
+        private final Disposable.Swap upstream = Disposables.swap();
+        private boolean started;
+        private boolean closed; // 끝났거나 구독자가 모두 떠나 취소됨
+
+        Flight(Function<? super V, ?> slotOf, int buffer) {
+            this.slotOf = slotOf;
+            this.buffer = buffer;
+        }
+
+        /** 닫힌 flight 면 null */
+        Flux<V> join(Supplier<Flux<V>> work) {
+            Sinks.Many<V> sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<V>get(buffer).get());
+            boolean start;
+            synchronized (this) {
+                if (closed)
+                    return null;
+                latest.values().forEach(sink::tryEmitNext);
+                subscribers.add(sink);
+                start = !started;
+                started = true;
+            }
+            if (start)
+                upstream.update(work.get().subscribe(this::next, this::error, this::complete));
+            return sink.asFlux().doFinally(signal -> remove(sink));
+        }
+
+        private synchronized void next(V value) {
+            Object slot = slotOf.apply(value);
+            if (slot != null)
+                latest.put(slot, value);
+            // 복사본으로 돈다: 구독자가 onNext 안에서 끊으면 remove 가 같은 스레드에서 목록을 고친다
+            for (Sinks.Many<V> s : List.copyOf(subscribers)) {
+                if (s.tryEmitNext(value) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    subscribers.remove(s);
+                    s.tryEmitError(new SlowSubscriberException(buffer));
+                }
+            }
+            cancelIfAbandoned();
+        }
+
+        private synchronized void error(Throwable e) {
+            closed = true;
+            List<Sinks.Many<V>> all = List.copyOf(subscribers);
+            subscribers.clear();
+            all.forEach(s -> s.tryEmitError(e));
+        }
+
+        private synchronized void complete() {
+            closed = true;
+            List<Sinks.Many<V>> all = List.copyOf(subscribers);
+            subscribers.clear();
+            all.forEach(Sinks.Many::tryEmitComplete);
+        }
+
+        private synchronized void remove(Sinks.Many<V> sink) {
+            subscribers.remove(sink);
+            cancelIfAbandoned();
+        }
+
+        private void cancelIfAbandoned() {
+            if (subscribers.isEmpty() && !closed) {
+                closed = true;
+                upstream.dispose(); // 아직 구독 전이면 update 때 바로 취소된다
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.youtube_comment_analysis.video;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -9,6 +14,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequiredArgsConstructor
@@ -16,14 +23,91 @@ import lombok.RequiredArgsConstructor;
 public class VideoController {
 
 	private final VideoService videoService;
+	private final YoutubeResponseCache youtubeResponseCache;
+	private final YoutubeQuotaScheduler youtubeQuotaScheduler;
+	private final AnalysisJobs analysisJobs;
+	private final VideoRollups videoRollups;
 
 	// dev 쪽에서 추가된 환경설정 기반 기본 fetch 개수 (미설정 시 1000)
 	@Value("${app.youtube.fetch-count:1000}")
 	private int fetchCount;
 
 	
+	// tz: 활동 통계 시간대 구간 기준 (예: Asia/Seoul, 미지정 시 UTC)
 	@GetMapping("/{videoId}")
-	public ResponseEntity<?> getVideoData(@PathVariable("videoId") String videoId) {
-		return ResponseEntity.ok(videoService.getVideoData(videoId, fetchCount));
+	public ResponseEntity<?> getVideoData(@PathVariable("videoId") String videoId,
+			@RequestParam(value = "tz", required = false) String tz) {
+		return ResponseEntity.ok(videoService.getVideoData(videoId, fetchCount, zoneOf(tz)));
+	}
+
+	// 논블로킹 버전: 요청 스레드를 점유하지 않고 Mono 로 응답
+	@GetMapping("/{videoId}/async")
+	public Mono<VideoResponse> getVideoDataAsync(@PathVariable("videoId") String videoId,
+			@RequestParam(value = "tz", required = false) String tz) {
+		return videoService.getVideoDataAsync(videoId, fetchCount, zoneOf(tz));
+	}
+
+	// 스트리밍 버전: Accept 에 따라 NDJSON 또는 SSE 로 meta → comments/analysis/sentiment → done 순서로 보낸다
+	@GetMapping(value = "/{videoId}/stream",
+			produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+	public Flux<VideoStreamEvent> streamVideoData(@PathVariable("videoId") String videoId,
+			@RequestParam(value = "tz", required = false) String tz) {
+		return videoService.streamVideoData(videoId, fetchCount, zoneOf(tz));
+	}
+
+	// 여러 영상 일괄 분석: ids(쉼표 구분) 또는 playlistId 또는 channelId(업로드 목록) 중 하나
+	// limit: 영상마다 받을 댓글 수 (미지정 시 기본 fetch 개수)
+	@GetMapping("/batch")
+	public Mono<BatchVideoResponse> getVideosBatch(@RequestParam(value = "ids", required = false) List<String> ids,
+			@RequestParam(value = "playlistId", required = false) String playlistId,
+			@RequestParam(value = "channelId", required = false) String channelId,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "tz", required = false) String tz) {
+		return videoService.getVideosBatchAsync(ids, playlistId, channelId,
+				limit == null ? fetchCount : limit, zoneOf(tz));
+	}
+
+	// 지켜보는 영상의 누적 요약 (최근 hours 시간 / days 일 구간, 고유 작성자 수 근사). 댓글 수와 무관하게 바로 응답
+	@GetMapping("/{videoId}/rollup")
+	public ResponseEntity<RollupDto> getRollup(@PathVariable("videoId") String videoId,
+			@RequestParam(value = "hours", defaultValue = "24") int hours,
+			@RequestParam(value = "days", defaultValue = "30") int days) {
+		RollupDto rollup = videoRollups.query(videoId, hours, days);
+		return rollup == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(rollup);
+	}
+
+	// YouTube 응답 캐시 적중/미스/제거 카운터
+	@GetMapping("/cache/stats")
+	public YoutubeResponseCache.Stats cacheStats() {
+		return youtubeResponseCache.stats();
+	}
+
+	// YouTube quota 토큰 버킷 상태 (남은 unit, 레인별 대기 수, 백오프)
+	@GetMapping("/quota/stats")
+	public YoutubeQuotaScheduler.Stats quotaStats() {
+		return youtubeQuotaScheduler.stats();
+	}
+
+	// 큐로 넘긴 감성 분석 작업 진행 상황
+	@GetMapping("/jobs/{jobId}")
+	public ResponseEntity<AnalysisJobs.JobStatus> jobStatus(@PathVariable("jobId") String jobId) {
+		AnalysisJobs.JobStatus status = analysisJobs.status(jobId);
+		return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+	}
+
+	// 분석 큐 적재/완료 배치 수와 밀린 바이트
+	@GetMapping("/jobs/stats")
+	public AnalysisJobs.Stats jobStats() {
+		return analysisJobs.stats();
+	}
+
+	private static ZoneId zoneOf(String tz) {
+		if (tz == null || tz.isBlank())
+			return null;
+		try {
+			return ZoneId.of(tz);
+		} catch (DateTimeException e) {
+			throw new IllegalArgumentException("잘못된 타임존: " + tz, e);
+		}
 	}
 }
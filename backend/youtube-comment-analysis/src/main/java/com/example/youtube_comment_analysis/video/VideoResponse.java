@@ -16,4 +16,8 @@ public class VideoResponse {
     private Long likeCount;
     private Long commentCount;
     private List<CommentDto> comments;
+    private AnalysisDto analysis;
+    private SentimentDto sentiment;
+    // 감성 분석을 큐로 넘긴 경우의 작업 id (GET /video/jobs/{jobId} 로 진행 상황 조회)
+    private String analysisJobId;
 }
@@ -0,0 +1,410 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 계속 지켜보는 영상 하나의 누적 요약. 댓글이 들어올 때마다 고정 크기 배열만 갱신하므로 조회 비용이 댓글 수와 무관하고,
+ * 같은 종류끼리 merge 로 합칠 수 있으며 writeTo / readFrom 으로 디스크에 스냅샷할 수 있다.
+ *
+ * - 시간/일 구간: 최근 HOURS 시간, DAYS 일을 링 버퍼로 보관한다. 슬롯마다 구간 키를 들고 있어서 지난 구간은 덮어쓴다.
+ *   구간마다 댓글 수, 좋아요 합, 라벨별 개수.
+ * - 요일 x 15분 히스토그램(UTC)과 분 히스토그램: 오프셋이 15분 단위로 고정된 시간대면 슬롯을 밀기만 해서
+ *   ActivityStats 와 같은 AnalysisDto 를 만든다. 댓글 기간에 DST 전환이 끼면 null (호출 쪽이 댓글로 다시 계산).
+ * - 고유 작성자 수는 HyperLogLog.
+ *
+ * 댓글 중복은 CommentSyncStore 의 commentId 인덱스가 걸러 준다. 그 상태가 사라지면(만료, 비연속 동기화, 재시작)
+ * fence() 로 지금까지 본 가장 최근 시각에 울타리를 세워 그 이전 댓글은 다시 세지 않는다.
+ * 여러 요청 스레드가 함께 쓰므로 메서드는 모두 synchronized.
+ */
+final class VideoRollup {
+
+    static final int HOURS = 168; // 7일
+    static final int DAYS = 90;
+    private static final int QUARTERS = 96; // 하루의 15분 구간 수
+    private static final int VERSION = 1;
+    private static final long NULL_LONG = ColumnarComments.NULL_LONG;
+
+    private long fence = NULL_LONG;
+    private long count;
+    private long timedCount; // publishedAt 이 있는 댓글 수 (AnalysisDto 기준)
+    private long likeTotal;
+    private long firstEpoch = Long.MAX_VALUE;
+    private long lastEpoch = Long.MIN_VALUE;
+    private final long[] labelCounts = new long[SentimentStats.LABELS];
+    private final int[] weekdayQuarters = new int[7 * QUARTERS]; // [요일(0 = 월요일) * 96 + 15분 구간], UTC
+    private final int[] minuteCounts = new int[60];              // UTC 분
+    private final Windows hours;
+    private final Windows days;
+    private final HyperLogLog authors;
+
+    VideoRollup() {
+        this(new Windows(HOURS, 3600), new Windows(DAYS, 86400), new HyperLogLog());
+    }
+
+    private VideoRollup(Windows hours, Windows days, HyperLogLog authors) {
+        this.hours = hours;
+        this.days = days;
+        this.authors = authors;
+    }
+
+    /** 댓글 하나를 반영한다. 울타리 이전 댓글이라 건너뛰었으면 false */
+    synchronized boolean add(long epochSecond, long likes, String author) {
+        if (fenced(epochSecond))
+            return false;
+
+        long like = likes == NULL_LONG ? 0 : Math.max(0, likes);
+        count++;
+        likeTotal += like;
+        authors.add(author);
+        if (epochSecond == NULL_LONG)
+            return true;
+
+        timedCount++;
+        long day = Math.floorDiv(epochSecond, 86400);
+        int secOfDay = (int) (epochSecond - day * 86400);
+        weekdayQuarters[(int) Math.floorMod(day + 3, 7) * QUARTERS + secOfDay / 900]++; // 1970-01-01 은 목요일
+        minuteCounts[(secOfDay / 60) % 60]++;
+        if (epochSecond < firstEpoch)
+            firstEpoch = epochSecond;
+        if (epochSecond > lastEpoch)
+            lastEpoch = epochSecond;
+
+        hours.add(epochSecond, like);
+        days.add(epochSecond, like);
+        return true;
+    }
+
+    /** 감성 결과 반영. 같은 댓글은 한 번만 불러야 한다 (CommentSyncStore 가 라벨이 처음 붙을 때만 부른다) */
+    synchronized void addSentiment(long epochSecond, int label) {
+        if (label < 0 || label >= SentimentStats.LABELS || fenced(epochSecond))
+            return;
+        labelCounts[label]++;
+        if (epochSecond != NULL_LONG) {
+            hours.addLabel(epochSecond, label);
+            days.addLabel(epochSecond, label);
+        }
+    }
+
+    /**
+     * 보관 중인 댓글 없이 들어온 감성 결과 (재시작 뒤 큐 재전달). 울타리 이전 댓글이어도 라벨은 아직 센 적이 없으므로 더한다.
+     * 큐는 ack 전에 죽었을 때만 다시 보내므로, 그 사이 스냅샷이 찍힌 드문 경우에만 한 번 더 세어질 수 있다.
+     */
+    synchronized void addReplayedSentiment(long epochSecond, int label) {
+        if (label < 0 || label >= SentimentStats.LABELS)
+            return;
+        labelCounts[label]++;
+        if (epochSecond != NULL_LONG) {
+            hours.addLabel(epochSecond, label);
+            days.addLabel(epochSecond, label);
+        }
+    }
+
+    /** 이미 센 댓글의 라벨이 바뀌었을 때 */
+    synchronized void replaceSentiment(long epochSecond, int oldLabel, int newLabel) {
+        if (oldLabel < 0 || oldLabel >= SentimentStats.LABELS || newLabel < 0 || newLabel >= SentimentStats.LABELS
+                || fenced(epochSecond) || labelCounts[oldLabel] == 0)
+            return;
+        labelCounts[oldLabel]--;
+        labelCounts[newLabel]++;
+        if (epochSecond != NULL_LONG) {
+            hours.replaceLabel(epochSecond, oldLabel, newLabel);
+            days.replaceLabel(epochSecond, oldLabel, newLabel);
+        }
+    }
+
+    /** 중복 제거 상태를 잃었을 때: 지금까지 본 가장 최근 시각까지는 이미 센 것으로 본다 */
+    synchronized void fence() {
+        if (lastEpoch != Long.MIN_VALUE && lastEpoch > fence)
+            fence = lastEpoch;
+    }
+
+    // 울타리가 있으면 그 시각 이하 댓글과 시각을 모르는 댓글은 이미 센 것일 수 있다
+    private boolean fenced(long epochSecond) {
+        return fence != NULL_LONG && (epochSecond == NULL_LONG || epochSecond <= fence);
+    }
+
+    /** other 를 더한다. this 는 보통 합산용으로 새로 만든 것 (잠금 순서: this → other) */
+    void merge(VideoRollup other) {
+        synchronized (this) {
+            synchronized (other) {
+                count += other.count;
+                timedCount += other.timedCount;
+                likeTotal += other.likeTotal;
+                firstEpoch = Math.min(firstEpoch, other.firstEpoch);
+                lastEpoch = Math.max(lastEpoch, other.lastEpoch);
+                for (int l = 0; l < labelCounts.length; l++)
+                    labelCounts[l] += other.labelCounts[l];
+                for (int i = 0; i < weekdayQuarters.length; i++)
+                    weekdayQuarters[i] += other.weekdayQuarters[i];
+                for (int i = 0; i < minuteCounts.length; i++)
+                    minuteCounts[i] += other.minuteCounts[i];
+                hours.merge(other.hours);
+                days.merge(other.days);
+                authors.merge(other.authors);
+            }
+        }
+    }
+
+    /**
+     * 첫 댓글부터 마지막 댓글 사이에 오프셋이 한 번도 바뀌지 않고 15분 단위인 시간대의 활동 통계.
+     * (Asia/Seoul 처럼 지금은 DST 가 없는 지역 시간대도 포함) 그 기간에 전환이 있으면 null.
+     */
+    synchronized AnalysisDto toAnalysis(ZoneId zone) {
+        ZoneRules rules = zone.getRules();
+        Instant first = Instant.ofEpochSecond(timedCount == 0 ? 0 : firstEpoch);
+        if (!rules.isFixedOffset()) {
+            ZoneOffsetTransition next = rules.nextTransition(first);
+            if (next != null && timedCount > 0 && next.getInstant().getEpochSecond() <= lastEpoch)
+                return null;
+        }
+        int offset = rules.getOffset(first).getTotalSeconds();
+        if (offset % 900 != 0)
+            return null;
+
+        int[] hourly = new int[24];
+        int[] weekday = new int[7];
+        int[] minute = new int[60];
+        int shift = offset / 900;
+        for (int i = 0; i < weekdayQuarters.length; i++) {
+            int c = weekdayQuarters[i];
+            if (c == 0)
+                continue;
+            int local = Math.floorMod(i + shift, weekdayQuarters.length);
+            weekday[local / QUARTERS] += c;
+            hourly[(local % QUARTERS) / 4] += c;
+        }
+        int minuteShift = (offset / 60) % 60;
+        for (int m = 0; m < 60; m++)
+            minute[Math.floorMod(m + minuteShift, 60)] += minuteCounts[m];
+
+        return ActivityStats.toDto(zone, hourly, weekday, minute, firstEpoch, lastEpoch, timedCount);
+    }
+
+    /** now 를 끝으로 최근 hourWindows 시간, dayWindows 일 구간 (각각 HOURS, DAYS 까지) */
+    synchronized RollupDto toDto(long nowEpoch, int hourWindows, int dayWindows) {
+        List<Long> labels = new ArrayList<>(labelCounts.length);
+        for (long c : labelCounts)
+            labels.add(c);
+        return RollupDto.builder()
+                .commentCount(count)
+                .likeTotal(likeTotal)
+                .distinctAuthors(authors.estimate())
+                .labelCounts(labels)
+                .firstCommentAt(timedCount == 0 ? null : iso(firstEpoch))
+                .lastCommentAt(timedCount == 0 ? null : iso(lastEpoch))
+                .hourly(hours.query(nowEpoch, hourWindows))
+                .daily(days.query(nowEpoch, dayWindows))
+                .build();
+    }
+
+    synchronized long count() {
+        return count;
+    }
+
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeLong(fence);
+        out.writeLong(count);
+        out.writeLong(timedCount);
+        out.writeLong(likeTotal);
+        out.writeLong(firstEpoch);
+        out.writeLong(lastEpoch);
+        writeLongs(out, labelCounts);
+        writeInts(out, weekdayQuarters);
+        writeInts(out, minuteCounts);
+        hours.writeTo(out);
+        days.writeTo(out);
+        authors.writeTo(out);
+    }
+
+    static VideoRollup readFrom(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("알 수 없는 롤업 스냅샷 버전: " + version);
+        long fence = in.readLong();
+        long count = in.readLong();
+        long timedCount = in.readLong();
+        long likeTotal = in.readLong();
+        long firstEpoch = in.readLong();
+        long lastEpoch = in.readLong();
+        long[] labelCounts = readLongs(in);
+        int[] weekdayQuarters = readInts(in);
+        int[] minuteCounts = readInts(in);
+        if (labelCounts.length != SentimentStats.LABELS || weekdayQuarters.length != 7 * QUARTERS
+                || minuteCounts.length != 60)
+            throw new IOException("롤업 스냅샷 크기가 맞지 않습니다");
+
+        VideoRollup r = new VideoRollup(Windows.readFrom(in), Windows.readFrom(in), HyperLogLog.readFrom(in));
+        r.fence = fence;
+        r.count = count;
+        r.timedCount = timedCount;
+        r.likeTotal = likeTotal;
+        r.firstEpoch = firstEpoch;
+        r.lastEpoch = lastEpoch;
+        System.arraycopy(labelCounts, 0, r.labelCounts, 0, labelCounts.length);
+        System.arraycopy(weekdayQuarters, 0, r.weekdayQuarters, 0, weekdayQuarters.length);
+        System.arraycopy(minuteCounts, 0, r.minuteCounts, 0, minuteCounts.length);
+        return r;
+    }
+
+    /** 같은 길이(seconds)의 구간을 size 개 슬롯 링으로 보관. 슬롯 i 에는 key % size == i 인 가장 최근 구간이 있다 */
+    private static final class Windows {
+        private final int seconds;
+        private final long[] keys; // 구간 키 = floor(epoch / seconds), 빈 슬롯은 Long.MIN_VALUE
+        private final int[] comments;
+        private final long[] likes;
+        private final int[] labels; // [slot * LABELS + label]
+
+        Windows(int size, int seconds) {
+            this.seconds = seconds;
+            this.keys = new long[size];
+            this.comments = new int[size];
+            this.likes = new long[size];
+            this.labels = new int[size * SentimentStats.LABELS];
+            Arrays.fill(keys, Long.MIN_VALUE);
+        }
+
+        void add(long epochSecond, long like) {
+            int i = slot(Math.floorDiv(epochSecond, seconds));
+            if (i < 0)
+                return;
+            comments[i]++;
+            likes[i] += like;
+        }
+
+        void addLabel(long epochSecond, int label) {
+            int i = slot(Math.floorDiv(epochSecond, seconds));
+            if (i >= 0)
+                labels[i * SentimentStats.LABELS + label]++;
+        }
+
+        // 그 구간이 아직 링에 있을 때만 옮긴다 (밀려난 구간은 슬롯을 새로 차지하지 않는다)
+        void replaceLabel(long epochSecond, int oldLabel, int newLabel) {
+            long key = Math.floorDiv(epochSecond, seconds);
+            int i = (int) Math.floorMod(key, keys.length);
+            if (keys[i] != key || labels[i * SentimentStats.LABELS + oldLabel] == 0)
+                return;
+            labels[i * SentimentStats.LABELS + oldLabel]--;
+            labels[i * SentimentStats.LABELS + newLabel]++;
+        }
+
+        // key 구간의 슬롯. 그 자리에 더 오래된 구간이 있으면 비우고 차지하고, 더 최근 구간이 있으면(링에서 밀려남) -1
+        private int slot(long key) {
+            int i = (int) Math.floorMod(key, keys.length);
+            if (keys[i] == key)
+                return i;
+            if (keys[i] > key)
+                return -1;
+            keys[i] = key;
+            comments[i] = 0;
+            likes[i] = 0;
+            Arrays.fill(labels, i * SentimentStats.LABELS, (i + 1) * SentimentStats.LABELS, 0);
+            return i;
+        }
+
+        void merge(Windows other) {
+            if (other.seconds != seconds)
+                throw new IllegalArgumentException("구간 길이가 다른 롤업은 병합할 수 없습니다");
+            for (int j = 0; j < other.keys.length; j++) {
+                if (other.keys[j] == Long.MIN_VALUE)
+                    continue;
+                int i = slot(other.keys[j]);
+                if (i < 0)
+                    continue;
+                comments[i] += other.comments[j];
+                likes[i] += other.likes[j];
+                for (int l = 0; l < SentimentStats.LABELS; l++)
+                    labels[i * SentimentStats.LABELS + l] += other.labels[j * SentimentStats.LABELS + l];
+            }
+        }
+
+        List<RollupDto.Window> query(long nowEpoch, int n) {
+            n = Math.max(1, Math.min(n, keys.length));
+            long end = Math.floorDiv(nowEpoch, seconds);
+            List<RollupDto.Window> out = new ArrayList<>(n);
+            for (long key = end - n + 1; key <= end; key++) {
+                int i = (int) Math.floorMod(key, keys.length);
+                boolean present = keys[i] == key;
+                List<Integer> labelRow = new ArrayList<>(SentimentStats.LABELS);
+                for (int l = 0; l < SentimentStats.LABELS; l++)
+                    labelRow.add(present ? labels[i * SentimentStats.LABELS + l] : 0);
+                out.add(new RollupDto.Window(iso(key * seconds), present ? comments[i] : 0,
+                        present ? likes[i] : 0, labelRow));
+            }
+            return out;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(seconds);
+            writeLongs(out, keys);
+            writeInts(out, comments);
+            writeLongs(out, likes);
+            writeInts(out, labels);
+        }
+
+        static Windows readFrom(DataInput in) throws IOException {
+            int seconds = in.readInt();
+            long[] keys = readLongs(in);
+            int[] comments = readInts(in);
+            long[] likes = readLongs(in);
+            int[] labels = readInts(in);
+            if (seconds <= 0 || comments.length != keys.length || likes.length != keys.length
+                    || labels.length != keys.length * SentimentStats.LABELS)
+                throw new IOException("롤업 구간 스냅샷 크기가 맞지 않습니다");
+
+            Windows w = new Windows(keys.length, seconds);
+            System.arraycopy(keys, 0, w.keys, 0, keys.length);
+            System.arraycopy(comments, 0, w.comments, 0, comments.length);
+            System.arraycopy(likes, 0, w.likes, 0, likes.length);
+            System.arraycopy(labels, 0, w.labels, 0, labels.length);
+            return w;
+        }
+    }
+
+    private static String iso(long epochSecond) {
+        return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(epochSecond));
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int v : values)
+            out.writeInt(v);
+    }
+
+    private static void writeLongs(DataOutput out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long v : values)
+            out.writeLong(v);
+    }
+
+    private static int[] readInts(DataInput in) throws IOException {
+        int[] values = new int[checkedLength(in.readInt())];
+        for (int i = 0; i < values.length; i++)
+            values[i] = in.readInt();
+        return values;
+    }
+
+    private static long[] readLongs(DataInput in) throws IOException {
+        long[] values = new long[checkedLength(in.readInt())];
+        for (int i = 0; i < values.length; i++)
+            values[i] = in.readLong();
+        return values;
+    }
+
+    // 깨진 스냅샷이 거대한 배열을 잡지 않도록
+    private static int checkedLength(int n) throws IOException {
+        if (n < 0 || n > 1 << 20)
+            throw new IOException("롤업 스냅샷 배열 길이가 잘못되었습니다: " + n);
+        return n;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 영상별 VideoRollup 보관소. 댓글 보관(CommentSyncStore)과 따로 두어 댓글이 만료·압축돼도 누적 요약은 남는다.
+ *
+ * youtube.rollup.snapshot-file 을 주면 시작할 때 읽어 들이고, snapshot-interval-sec 마다와 종료할 때 파일로 쓴다.
+ * 읽어 들인 요약은 중복 제거 상태(댓글 id)가 없으므로 곧바로 fence 를 세운다.
+ * 스냅샷: [int MAGIC][int 영상 수] 영상마다 ([UTF videoId][VideoRollup]). 임시 파일에 쓴 뒤 이름을 바꾼다.
+ */
+@Component
+@Slf4j
+public class VideoRollups {
+
+    private static final int MAGIC = 0x524f4c31; // "ROL1"
+
+    private final Cache<String, VideoRollup> rollups;
+    private final Path snapshotFile;
+    private final ScheduledExecutorService snapshotter;
+
+    public VideoRollups(
+            @Value("${youtube.rollup.max-videos:10000}") long maxVideos,
+            @Value("${youtube.rollup.idle-ttl-sec:2592000}") long idleTtlSec,
+            @Value("${youtube.rollup.snapshot-file:}") String snapshotFile,
+            @Value("${youtube.rollup.snapshot-interval-sec:300}") long snapshotIntervalSec) {
+        this.rollups = Caffeine.newBuilder()
+                .maximumSize(maxVideos)
+                .expireAfterAccess(Duration.ofSeconds(idleTtlSec))
+                .build();
+        this.snapshotFile = snapshotFile == null || snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+        if (this.snapshotFile == null) {
+            this.snapshotter = null;
+            return;
+        }
+
+        load();
+        if (snapshotIntervalSec > 0) {
+            this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "rollup-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalSec, snapshotIntervalSec,
+                    TimeUnit.SECONDS);
+        } else {
+            this.snapshotter = null;
+        }
+    }
+
+    /** 영상 요약. 없으면 만들고, 새로 만든 경우에만 backfill 로 보관 중인 댓글을 채워 넣는다 */
+    VideoRollup get(String videoId, Consumer<VideoRollup> backfill) {
+        return rollups.get(videoId, id -> {
+            VideoRollup r = new VideoRollup();
+            backfill.accept(r);
+            return r;
+        });
+    }
+
+    VideoRollup getIfPresent(String videoId) {
+        return rollups.getIfPresent(videoId);
+    }
+
+    /** 영상의 중복 제거 상태가 새로 시작될 때 (CommentSyncStore 가 VideoComments 를 새로 만들 때) */
+    void fence(String videoId) {
+        VideoRollup r = rollups.getIfPresent(videoId);
+        if (r != null)
+            r.fence();
+    }
+
+    /** 지켜본 적 없는 영상이면 null */
+    public RollupDto query(String videoId, int hours, int days) {
+        VideoRollup r = rollups.getIfPresent(videoId);
+        return r == null ? null : r.toDto(System.currentTimeMillis() / 1000, hours, days);
+    }
+
+    /** 여러 영상 요약을 합친 새 VideoRollup (없는 영상은 건너뛴다) */
+    VideoRollup combined(List<String> videoIds) {
+        VideoRollup sum = new VideoRollup();
+        for (String id : videoIds) {
+            VideoRollup r = rollups.getIfPresent(id);
+            if (r != null)
+                sum.merge(r);
+        }
+        return sum;
+    }
+
+    /** 댓글 기간 동안 오프셋이 고정인 시간대면 요약에서 바로, 아니면 null */
+    AnalysisDto analysis(String videoId, ZoneId zone) {
+        VideoRollup r = rollups.getIfPresent(videoId);
+        return r == null ? null : r.toAnalysis(zone);
+    }
+
+    public synchronized void snapshot() throws IOException {
+        if (snapshotFile == null)
+            return;
+        Map<String, VideoRollup> current = Map.copyOf(rollups.asMap());
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        if (snapshotFile.getParent() != null)
+            Files.createDirectories(snapshotFile.getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(current.size());
+            for (Map.Entry<String, VideoRollup> e : current.entrySet()) {
+                out.writeUTF(e.getKey());
+                e.getValue().writeTo(out);
+            }
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("rollup snapshot written file={} videos={}", snapshotFile, current.size());
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("rollup snapshot failed {}: {}", snapshotFile, e.toString());
+        }
+    }
+
+    // 스냅샷이 없거나 깨졌으면 읽을 수 있는 데까지만 쓰고 빈 상태로 시작한다
+    private void load() {
+        if (!Files.exists(snapshotFile))
+            return;
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("롤업 스냅샷 형식이 아닙니다");
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String videoId = in.readUTF();
+                VideoRollup r = VideoRollup.readFrom(in);
+                r.fence();
+                rollups.put(videoId, r);
+                loaded++;
+            }
+        } catch (EOFException e) {
+            log.warn("rollup snapshot truncated {} (loaded {} videos)", snapshotFile, loaded);
+        } catch (IOException e) {
+            log.warn("rollup snapshot unreadable {}: {} (loaded {} videos)", snapshotFile, e.getMessage(), loaded);
+        }
+        log.info("rollup snapshot loaded file={} videos={}", snapshotFile, loaded);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (snapshotter != null)
+            snapshotter.shutdownNow();
+        snapshotQuietly();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.youtube_comment_analysis.video;
 
 import com.example.youtube_comment_analysis.AiSender;
+import com.example.youtube_comment_analysis.PipelineMetrics;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -12,13 +13,20 @@ import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.util.UriBuilder;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Service
 @Slf4j
@@ -26,200 +34,624 @@ public class VideoService {
 
     private final WebClient yt;
     private final AiSender aiSender;
+    private final YoutubeResponseCache cache;
+    private final CommentSyncStore syncStore;
+    private final YoutubeQuotaScheduler quota;
+    private final AnalysisJobs analysisJobs;
+    private final PipelineMetrics metrics;
 
-    public VideoService(@Qualifier("youtubeWebClient") WebClient yt, AiSender aiSender) {
+    public VideoService(@Qualifier("youtubeWebClient") WebClient yt, AiSender aiSender,
+                        YoutubeResponseCache cache, CommentSyncStore syncStore, YoutubeQuotaScheduler quota,
+                        AnalysisJobs analysisJobs, PipelineMetrics metrics) {
         this.yt = yt;
         this.aiSender = aiSender;
+        this.cache = cache;
+        this.syncStore = syncStore;
+        this.quota = quota;
+        this.analysisJobs = analysisJobs;
+        this.metrics = metrics;
     }
 
     @Value("${youtube.api.key}")
     private String apikey;
 
+    // 일괄 분석에서 동시에 댓글을 받는 영상 수 / 한 번에 받을 최대 영상 수
+    @Value("${youtube.batch.parallelism:4}")
+    private int batchParallelism;
+
+    @Value("${youtube.batch.max-videos:50}")
+    private int batchMaxVideos;
+
+    // 답글 펼치기: 인라인 답글(최대 5개)을 쓰고, 그보다 답글이 많은 스레드는 /comments?parentId= 로 나머지를 받는다.
+    // 스레드 parallelism 개까지 동시에, 스레드당 최대 max-per-thread 개
+    @Value("${youtube.replies.enabled:false}")
+    private boolean repliesEnabled;
+
+    @Value("${youtube.replies.parallelism:4}")
+    private int replyParallelism;
+
+    @Value("${youtube.replies.max-per-thread:1000}")
+    private int maxRepliesPerThread;
+
+    // /videos 는 id 를 최대 50개까지 한 번에 받는다
+    private static final int VIDEOS_PER_CALL = 50;
+
     private final ObjectMapper mapper = new ObjectMapper();
 
+    // 같은 영상/개수/시간대로 동시에 들어온 요청은 하나의 fetch-and-analyze 파이프라인을 공유
+    private record FlightKey(String videoId, int limit, ZoneId zone) {}
+    private final SingleFlight<FlightKey, VideoResponse> responseFlights = new SingleFlight<>();
+    private final SingleFlight<FlightKey, VideoStreamEvent> streamFlights = new SingleFlight<>();
+
     public VideoResponse getVideoData(String videoId, int limit) {
-        try {
-            // --- 영상 메타데이터 조회 ---
-            String videoJson = yt.get()
-                    .uri(b -> b.path("/videos")
-                            .queryParam("part", "snippet,statistics")
-                            .queryParam("id", videoId)
-                            .queryParam("key", apikey)
-                            .build())
-                    .retrieve()
-                    .onStatus(HttpStatusCode::is4xxClientError, res ->
-                            res.bodyToMono(String.class)
-                                    .map(body -> new RuntimeException("클라이언트 오류 (API Key, 권한 등): " + body)))
-                    .onStatus(HttpStatusCode::is5xxServerError, res ->
-                            res.bodyToMono(String.class)
-                                    .map(body -> new RuntimeException("유튜브 서버 오류: " + body)))
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode vroot = mapper.readTree(videoJson);
-            JsonNode items = vroot.path("items");
-
-            if (!items.isArray() || items.size() == 0) {
-                throw new IllegalArgumentException("영상 없음 : " + videoId);
-            }
-
-            JsonNode v0 = items.get(0);
-            JsonNode snippet = v0.path("snippet");
-            JsonNode stats = v0.path("statistics");
-
-            VideoResponse resp = new VideoResponse();
-            resp.setVideoId(videoId);
-            resp.setTitle(snippet.path("title").asText(null));
-            resp.setChannelId(snippet.path("channelId").asText(null));
-            resp.setChannelTitle(snippet.path("channelTitle").asText(null));
-            resp.setPublishedAt(snippet.path("publishedAt").asText(null));
-            resp.setViewCount(stats.path("viewCount").isMissingNode() ? null : stats.path("viewCount").asLong());
-            resp.setLikeCount(stats.path("likeCount").isMissingNode() ? null : stats.path("likeCount").asLong());
-            resp.setCommentCount(stats.path("commentCount").isMissingNode() ? null : stats.path("commentCount").asLong());
-
-            // --- 댓글 데이터 조회 ---
-            List<CommentDto> comments = new ArrayList<>();
-            String pageToken = null;
-            int remain = Math.max(0, limit);
-
-            while (remain > 0) {
-                int pageSize = Math.min(100, remain); // 100개 단위로 요청
-                final String token = pageToken;
-
-                String ctJson = yt.get()
-                        .uri(b -> b.path("/commentThreads")
-                                .queryParam("part", "snippet,replies")
-                                .queryParam("textFormat", "plainText")
-                                .queryParam("order", "time")
-                                .queryParam("maxResults", pageSize)
-                                .queryParam("videoId", videoId)
-                                .queryParam("key", apikey)
-                                .queryParamIfPresent("pageToken", Optional.ofNullable(token))
-                                .build())
-                        .retrieve()
-                        .onStatus(HttpStatusCode::is4xxClientError, res ->
-                                res.bodyToMono(String.class)
-                                        .map(body -> new RuntimeException("댓글 조회 오류: " + body)))
-                        .onStatus(HttpStatusCode::is5xxServerError, res ->
-                                res.bodyToMono(String.class)
-                                        .map(body -> new RuntimeException("댓글 서버 오류: " + body)))
-                        .bodyToMono(String.class)
-                        .block();
-
-                JsonNode croot = mapper.readTree(ctJson);
-                JsonNode citems = croot.path("items");
-
-                if (citems.isArray()) {
-                    for (JsonNode it : citems) {
-                        JsonNode top = it.path("snippet").path("topLevelComment");
-                        String commentId = top.path("id").asText();
-                        JsonNode cs = top.path("snippet");
-                        String author = cs.path("authorDisplayName").asText(null);
-                        String text = cs.path("textDisplay").asText(null);
-                        long likeCount = cs.path("likeCount").asLong(0);
-                        String publishedAt = cs.path("publishedAt").asText(null);
-
-                        comments.add(new CommentDto(
-                                commentId,
-                                author,
-                                text,
-                                likeCount,
-                                publishedAt
-                        ));
+        return getVideoData(videoId, limit, null);
+    }
+
+    public VideoResponse getVideoData(String videoId, int limit, ZoneId zone) {
+        return getVideoDataAsync(videoId, limit, zone).block();
+    }
+
+    /**
+     * 논블로킹 버전. 메타데이터(/videos)와 첫 댓글 페이지를 동시에 요청하고,
+     * 댓글 페이지 N 의 파싱은 페이지 N+1 요청과 겹쳐서 진행된다.
+     */
+    public Mono<VideoResponse> getVideoDataAsync(String videoId, int limit) {
+        return getVideoDataAsync(videoId, limit, null);
+    }
+
+    /** zone 을 주면 활동 통계의 시간대 구간을 그 타임존 기준으로 나눈다 (기본 UTC). */
+    public Mono<VideoResponse> getVideoDataAsync(String videoId, int limit, ZoneId zone) {
+        return responseFlights.join(new FlightKey(videoId, limit, zone),
+                () -> PipelineMetrics.withRequestId(metrics.request("get", videoId, loadVideoData(videoId, limit, zone))));
+    }
+
+    private Mono<VideoResponse> loadVideoData(String videoId, int limit, ZoneId zone) {
+        Mono<VideoResponse> meta = fetchVideoMeta(videoId);
+        Mono<CommentSyncStore.Delta> delta = syncComments(videoId, limit);
+
+        return Mono.zip(meta, delta)
+                .flatMap(t -> {
+                    VideoResponse resp = t.getT1();
+                    CommentSyncStore.Delta d = t.getT2();
+                    metrics.recordComments("get", d.comments().size(), d.added().size());
+                    resp.setComments(d.comments());
+                    resp.setAnalysis(zone == null || zone.equals(ZoneOffset.UTC)
+                            ? d.analysis() : syncStore.analysis(videoId, zone));
+
+                    // 큐가 켜져 있으면 추론을 기다리지 않고 job id 와 지금까지의 감성 통계만 담아 바로 응답
+                    if (analysisJobs.isEnabled()) {
+                        resp.setAnalysisJobId(analysisJobs.enqueue(videoId, d.added()));
+                        resp.setSentiment(syncStore.sentiment(videoId));
+                        return Mono.just(resp);
+                    }
+
+                    // --- AI Sender 호출 (FastAPI와 연동) --- 새로 들어온 댓글만 보낸다
+                    // 배치 결과가 도착하는 대로 예측 라벨을 댓글에 붙인다
+                    Map<String, CommentDto> byId = new HashMap<>(d.added().size() * 2);
+                    d.added().forEach(c -> byId.put(c.getCommentId(), c));
+                    var commentList = d.added().stream()
+                            .map(c -> new AiSender.CommentLite(c.getCommentId(), c.getText()))
+                            .toList();
+                    return aiSender.sendBatches(commentList)
+                            .doOnNext(batch -> batch.predictions().forEach((id, label) -> {
+                                CommentDto c = byId.get(id);
+                                if (c != null)
+                                    c.setSentiment(label);
+                            }))
+                            .reduce(new AiSender.SendResult(0, 0, 0, 0), AiSender.SendResult::plus)
+                            .map(sendResult -> {
+                                log.info("FastAPI send result: success={}, clientError={}, otherError={}, cached={}",
+                                        sendResult.success(), sendResult.clientError(), sendResult.otherError(), sendResult.cached());
+                                resp.setSentiment(syncStore.addSentiment(videoId, d.added()));
+                                return resp;
+                            });
+                })
+                .onErrorMap(this::toFetchException);
+    }
+
+    // --- 스트리밍 ---
+    // 메타데이터를 먼저 보내고, 댓글 페이지가 도착할 때마다 페이지와 누적 활동 통계를,
+    // AI 배치가 끝날 때마다 감성 결과를 보낸다. 페이지를 모아 두지 않으므로 서버 메모리는 댓글 수와 무관하다.
+    public Flux<VideoStreamEvent> streamVideoData(String videoId, int limit, ZoneId zone) {
+        // 늦게 붙은 클라이언트는 메타데이터와 최신 누적 통계부터 받는다. 지나간 댓글 페이지는 다시 보내지 않는다
+        return streamFlights.joinMany(new FlightKey(videoId, limit, zone),
+                () -> PipelineMetrics.withRequestId(metrics.request("stream", videoId, loadVideoStream(videoId, limit, zone))),
+                e -> "comments".equals(e.type()) ? null : e.type());
+    }
+
+    private Flux<VideoStreamEvent> loadVideoStream(String videoId, int limit, ZoneId zone) {
+        return Flux.defer(() -> {
+            ActivityStats activity = new ActivityStats(zone == null ? ZoneOffset.UTC : zone);
+            SentimentStats sentiment = new SentimentStats();
+            AtomicLong count = new AtomicLong();
+
+            // 메타데이터와 첫 페이지는 동시에 요청하되, 순서는 메타데이터가 먼저
+            Flux<VideoStreamEvent> meta = fetchVideoMeta(videoId).map(VideoStreamEvent::meta).flux();
+            Flux<VideoStreamEvent> body = fetchCommentPages(videoId, limit)
+                    .publish(pages -> Flux.merge(
+                            pages.concatMapIterable(page -> {
+                                AnalysisDto running;
+                                synchronized (activity) {
+                                    page.comments().forEach(activity::add);
+                                    count.addAndGet(page.comments().size());
+                                    running = activity.toDto();
+                                }
+                                return List.of(VideoStreamEvent.comments(page.comments()), VideoStreamEvent.analysis(running));
+                            }),
+                            pages.concatMap(page -> streamSentiment(page.comments(), sentiment))));
+
+            return Flux.mergeSequential(meta, body)
+                    .concatWith(Mono.fromSupplier(() -> {
+                        synchronized (activity) {
+                            synchronized (sentiment) {
+                                return VideoStreamEvent.done(new VideoStreamEvent.Summary(
+                                        count.get(), activity.toDto(), sentiment.toDto()));
+                            }
+                        }
+                    }));
+        }).onErrorMap(this::toFetchException);
+    }
+
+    private Flux<VideoStreamEvent> streamSentiment(List<CommentDto> page, SentimentStats sentiment) {
+        Map<String, CommentDto> byId = new HashMap<>(page.size() * 2);
+        page.forEach(c -> byId.put(c.getCommentId(), c));
+        var lites = page.stream()
+                .map(c -> new AiSender.CommentLite(c.getCommentId(), c.getText()))
+                .toList();
+
+        return aiSender.sendBatches(lites)
+                .map(batch -> {
+                    SentimentDto total;
+                    synchronized (sentiment) {
+                        batch.predictions().forEach((id, label) -> {
+                            CommentDto c = byId.get(id);
+                            if (c != null) {
+                                c.setSentiment(label);
+                                sentiment.add(c);
+                            }
+                        });
+                        total = sentiment.toDto();
                     }
-                }
-
-                pageToken = croot.path("nextPageToken").isMissingNode() ? null : croot.path("nextPageToken").asText(null);
-                remain -= pageSize;
-
-                if (pageToken == null) 
-                	break;
-            }
-
-            // --- AI Sender 호출 (FastAPI와 연동) ---
-            var commentList = comments.stream()
-                    .map(c -> new AiSender.CommentLite(c.getCommentId(), c.getText()))
-                    .toList();
-            var sendResult = aiSender.send(commentList);
-            log.info("FastAPI sendOnly result: success={}, clientError={}, otherError={}",
-                    sendResult.success(), sendResult.clientError(), sendResult.otherError());
-            
-            //테스트 코드
-            List<Integer> list=analyzeCommentsActivity(comments).getTopActiveHours();
-            
-            for(int l:list) {
-            	System.out.println(l);
-            }
-          //테스트 코드
-            
-            resp.setComments(comments);
-            return resp;
-        } catch (WebClientRequestException e) {
-            throw new RuntimeException("네트워크 오류: " + e.getMessage(), e);
-        } catch (TimeoutException e) {
-            throw new RuntimeException("YouTube API 응답 지연", e);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch YouTube data: " + e.getMessage(), e);
+                    return VideoStreamEvent.sentiment(new VideoStreamEvent.SentimentUpdate(batch.predictions(), total));
+                });
+    }
+
+    // --- 여러 영상 일괄 분석 ---
+    // 메타데이터는 /videos 한 번에 50개씩, 댓글은 영상마다 youtube.batch.parallelism 개까지 동시에 받는다.
+    // 새 댓글은 영상 구분 없이 모아서 AiSender 배치를 채운다.
+    // 호출 수가 많으므로 YouTube 호출은 BACKGROUND 레인으로 보내 단일 영상 요청이 먼저 나가게 한다.
+    public Mono<BatchVideoResponse> getVideosBatchAsync(List<String> videoIds, String playlistId, String channelId,
+                                                        int limit, ZoneId zone) {
+        int max = Math.max(1, batchMaxVideos);
+        Mono<BatchVideoResponse> batch = resolveVideoIds(videoIds, playlistId, channelId, max)
+                .flatMap(ids -> fetchVideoMetas(ids)
+                        .flatMap(metas -> loadVideosBatch(ids, metas, limit, zone)))
+                .contextWrite(YoutubeQuotaScheduler.lane(YoutubeQuotaScheduler.Lane.BACKGROUND));
+        return PipelineMetrics.withRequestId(metrics.request("batch", null, batch))
+                .onErrorMap(this::toFetchException);
+    }
+
+    private Mono<List<String>> resolveVideoIds(List<String> videoIds, String playlistId, String channelId, int max) {
+        if (videoIds != null && !videoIds.isEmpty()) {
+            return Mono.just(videoIds.stream()
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .distinct()
+                    .limit(max)
+                    .toList());
         }
+        if (playlistId != null && !playlistId.isBlank())
+            return fetchPlaylistVideoIds(playlistId, max);
+        if (channelId != null && !channelId.isBlank())
+            return fetchUploadsPlaylistId(channelId).flatMap(uploads -> fetchPlaylistVideoIds(uploads, max));
+        return Mono.error(new IllegalArgumentException("ids, playlistId, channelId 중 하나는 필요합니다"));
     }
 
-    // --- 추가: 댓글 활동 분석 ---
-    public AnalysisDto analyzeCommentsActivity(List<CommentDto> comments) {
-        
-        if (comments == null || comments.isEmpty()) {
-            return AnalysisDto.builder()
-                    .hourlyCommentCount(List.of(new Integer[24])) // 24시간 0으로 초기화
-                    .peakHour(0)
-                    .topActiveHours(new ArrayList<>())
-                    .totalCommentPeriod("데이터 없음")
-                    .averageCommentsPerHour(0.0)
-                    .build();
+    private Mono<BatchVideoResponse> loadVideosBatch(List<String> ids, Map<String, VideoResponse> metas,
+                                                     int limit, ZoneId zone) {
+        // 메타데이터가 없는 영상(삭제/비공개)은 댓글을 받지 않는다. 댓글 조회 실패도 그 영상만 빠진다
+        return Flux.fromIterable(ids)
+                .filter(metas::containsKey)
+                .flatMap(id -> syncComments(id, limit)
+                        .map(d -> Map.entry(id, d))
+                        .onErrorResume(e -> {
+                            log.warn("batch comment sync failed videoId={}: {}", id, e.getMessage());
+                            return Mono.empty();
+                        }), Math.max(1, batchParallelism))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .flatMap(deltas -> {
+                    List<VideoResponse> videos = new ArrayList<>();
+                    List<String> missing = new ArrayList<>();
+                    Map<String, List<CommentDto>> added = new LinkedHashMap<>();
+                    for (String id : ids) {
+                        CommentSyncStore.Delta d = deltas.get(id);
+                        if (d == null) {
+                            missing.add(id);
+                            continue;
+                        }
+                        VideoResponse v = metas.get(id);
+                        metrics.recordComments("batch", d.comments().size(), d.added().size());
+                        v.setComments(d.comments());
+                        v.setAnalysis(zone == null || zone.equals(ZoneOffset.UTC)
+                                ? d.analysis() : syncStore.analysis(id, zone));
+                        added.put(id, d.added());
+                        videos.add(v);
+                    }
+
+                    BatchVideoResponse out = new BatchVideoResponse();
+                    out.setVideos(videos);
+                    out.setMissingVideoIds(missing);
+                    out.setCombinedAnalysis(syncStore.combinedAnalysis(List.copyOf(added.keySet()),
+                            zone == null ? ZoneOffset.UTC : zone));
+
+                    if (analysisJobs.isEnabled()) {
+                        out.setAnalysisJobId(analysisJobs.enqueue(added));
+                        videos.forEach(v -> v.setSentiment(syncStore.sentiment(v.getVideoId())));
+                        out.setCombinedRollup(syncStore.rollup(List.copyOf(added.keySet())));
+                        return Mono.just(out);
+                    }
+                    return sendShared(added).then(Mono.fromSupplier(() -> {
+                        videos.forEach(v -> v.setSentiment(syncStore.addSentiment(v.getVideoId(), added.get(v.getVideoId()))));
+                        out.setCombinedRollup(syncStore.rollup(List.copyOf(added.keySet())));
+                        return out;
+                    }));
+                });
+    }
+
+    // 영상 여러 개의 새 댓글을 한 흐름으로 보내 배치를 공유한다 (댓글 id 는 영상 간에도 유일)
+    private Mono<AiSender.SendResult> sendShared(Map<String, List<CommentDto>> added) {
+        Map<String, CommentDto> byId = new HashMap<>();
+        added.values().forEach(list -> list.forEach(c -> byId.put(c.getCommentId(), c)));
+        var lites = byId.values().stream()
+                .map(c -> new AiSender.CommentLite(c.getCommentId(), c.getText()))
+                .toList();
+        return aiSender.sendBatches(lites)
+                .doOnNext(batch -> batch.predictions().forEach((id, label) -> {
+                    CommentDto c = byId.get(id);
+                    if (c != null)
+                        c.setSentiment(label);
+                }))
+                .reduce(new AiSender.SendResult(0, 0, 0, 0), AiSender.SendResult::plus)
+                .doOnNext(r -> log.info("FastAPI batch send result: videos={} success={}, clientError={}, otherError={}, cached={}",
+                        added.size(), r.success(), r.clientError(), r.otherError(), r.cached()));
+    }
+
+    private Mono<Map<String, VideoResponse>> fetchVideoMetas(List<String> ids) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += VIDEOS_PER_CALL)
+            chunks.add(ids.subList(i, Math.min(i + VIDEOS_PER_CALL, ids.size())));
+
+        return Flux.fromIterable(chunks)
+                .flatMap(chunk -> ytGet("videos", b -> b.path("/videos")
+                        .queryParam("part", "snippet,statistics")
+                        .queryParam("id", String.join(",", chunk))
+                        .queryParam("maxResults", VIDEOS_PER_CALL)
+                        .queryParam("key", apikey)
+                        .build(), "클라이언트 오류 (API Key, 권한 등): "), Math.max(1, batchParallelism))
+                .flatMapIterable(json -> {
+                    long parseStart = System.nanoTime();
+                    JsonNode items = readTree(json, "영상").path("items");
+                    metrics.recordParse("videos", System.nanoTime() - parseStart);
+                    return items;
+                })
+                .collectMap(item -> item.path("id").asText(), item -> toVideoResponse(item.path("id").asText(), item));
+    }
+
+    private Mono<String> fetchUploadsPlaylistId(String channelId) {
+        return ytGet("channels", b -> b.path("/channels")
+                        .queryParam("part", "contentDetails")
+                        .queryParam("id", channelId)
+                        .queryParam("key", apikey)
+                        .build(), "채널 조회 오류: ")
+                .map(json -> {
+                    JsonNode items = readTree(json, "채널").path("items");
+                    String uploads = items.path(0).path("contentDetails").path("relatedPlaylists").path("uploads").asText(null);
+                    if (uploads == null)
+                        throw new IllegalArgumentException("채널 없음 : " + channelId);
+                    return uploads;
+                });
+    }
+
+    private Mono<List<String>> fetchPlaylistVideoIds(String playlistId, int max) {
+        return fetchPlaylistPage(playlistId, null, max)
+                .expand(page -> page.nextPageToken() != null && page.remain() > 0
+                        ? fetchPlaylistPage(playlistId, page.nextPageToken(), page.remain())
+                        : Mono.empty())
+                .concatMapIterable(PlaylistPage::videoIds)
+                .distinct()
+                .take(max)
+                .collectList();
+    }
+
+    private Mono<PlaylistPage> fetchPlaylistPage(String playlistId, String token, int remain) {
+        int pageSize = Math.min(VIDEOS_PER_CALL, remain);
+        return ytGet("playlistItems", b -> b.path("/playlistItems")
+                        .queryParam("part", "contentDetails")
+                        .queryParam("playlistId", playlistId)
+                        .queryParam("maxResults", pageSize)
+                        .queryParam("key", apikey)
+                        .queryParamIfPresent("pageToken", Optional.ofNullable(token))
+                        .build(), "재생목록 조회 오류: ")
+                .map(json -> {
+                    JsonNode root = readTree(json, "재생목록");
+                    List<String> ids = new ArrayList<>();
+                    for (JsonNode item : root.path("items")) {
+                        String id = item.path("contentDetails").path("videoId").asText(null);
+                        if (id != null)
+                            ids.add(id);
+                    }
+                    return new PlaylistPage(ids, root.path("nextPageToken").asText(null), remain - ids.size());
+                });
+    }
+
+    private record PlaylistPage(List<String> videoIds, String nextPageToken, int remain) {}
+
+    // 일괄 분석용 GET. 응답 캐시 없이 quota 스케줄러만 거친다
+    private Mono<byte[]> ytGet(String endpoint, Function<UriBuilder, URI> uri, String clientErrorMessage) {
+        return quota.submit(YoutubeQuotaScheduler.LIST_COST, () -> metrics.youtubeCall(endpoint, yt.get()
+                .uri(uri)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, res ->
+                        res.bodyToMono(String.class).defaultIfEmpty("")
+                                .map(body -> YoutubeQuotaScheduler.errorFor(res, body, clientErrorMessage)))
+                .onStatus(HttpStatusCode::is5xxServerError, res ->
+                        res.bodyToMono(String.class)
+                                .map(body -> new RuntimeException("유튜브 서버 오류: " + body)))
+                .bodyToMono(byte[].class)));
+    }
+
+    private JsonNode readTree(byte[] json, String what) {
+        try {
+            return mapper.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(what + " 응답 파싱 실패: " + e.getMessage(), e);
         }
+    }
+
+    // --- 증분 동기화 ---
+    // 이전에 받은 댓글(워터마크)에 닿으면 takeWhile 이 upstream 을 취소해서 페이지 순회가 멈추고,
+    // 그 앞의 새 댓글만 저장소에 병합된다.
+    private Mono<CommentSyncStore.Delta> syncComments(String videoId, int limit) {
+        return Mono.defer(() -> {
+            CommentSyncStore.VideoComments known = syncStore.get(videoId);
+            AtomicBoolean reachedKnown = new AtomicBoolean(false);
 
-        int[] hourlyCounts = new int[24];
-        LocalDateTime firstCommentTime = null;
-        LocalDateTime lastCommentTime = null;
-
-        for (CommentDto comment : comments) {
-            LocalDateTime publishedAt = LocalDateTime.parse(comment.getPublishedAt(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-            int hour = publishedAt.getHour();
-            hourlyCounts[hour]++;
-
-            if (firstCommentTime == null || publishedAt.isBefore(firstCommentTime)) {
-                firstCommentTime = publishedAt;
-            }
-            if (lastCommentTime == null || publishedAt.isAfter(lastCommentTime)) {
-                lastCommentTime = publishedAt;
-            }
+            return fetchComments(videoId, limit)
+                    .takeWhile(c -> {
+                        if (known != null && known.isKnown(c)) {
+                            reachedKnown.set(true);
+                            return false;
+                        }
+                        return true;
+                    })
+                    .collectList()
+                    .map(fresh -> {
+                        // limit 은 최상위 댓글(스레드) 기준. 펼친 답글은 세지 않는다
+                        long threads = fresh.stream().filter(c -> c.getParentId() == null).count();
+                        boolean contiguous = known == null || reachedKnown.get() || threads < limit;
+                        CommentSyncStore.Delta d = syncStore.merge(videoId, fresh, contiguous, limit);
+                        log.info("comment sync videoId={} fetched={} added={} contiguous={}",
+                                videoId, fresh.size(), d.added().size(), contiguous);
+                        return d;
+                    });
+        });
+    }
+
+    // --- 영상 메타데이터 조회 ---
+    private Mono<VideoResponse> fetchVideoMeta(String videoId) {
+        return cache.get(YoutubeResponseCache.Key.videos(videoId), () -> quota.submit(YoutubeQuotaScheduler.LIST_COST, () -> metrics.youtubeCall("videos", yt.get()
+                .uri(b -> b.path("/videos")
+                        .queryParam("part", "snippet,statistics")
+                        .queryParam("id", videoId)
+                        .queryParam("key", apikey)
+                        .build())
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, res ->
+                        res.bodyToMono(String.class).defaultIfEmpty("")
+                                .map(body -> YoutubeQuotaScheduler.errorFor(res, body, "클라이언트 오류 (API Key, 권한 등): ")))
+                .onStatus(HttpStatusCode::is5xxServerError, res ->
+                        res.bodyToMono(String.class)
+                                .map(body -> new RuntimeException("유튜브 서버 오류: " + body)))
+                .bodyToMono(byte[].class))))
+                .map(json -> toVideoResponse(videoId, json));
+    }
+
+    private VideoResponse toVideoResponse(String videoId, byte[] videoJson) {
+        long parseStart = System.nanoTime();
+        JsonNode items = readTree(videoJson, "영상").path("items");
+        metrics.recordParse("videos", System.nanoTime() - parseStart);
+
+        if (!items.isArray() || items.size() == 0) {
+            throw new IllegalArgumentException("영상 없음 : " + videoId);
         }
+        return toVideoResponse(videoId, items.get(0));
+    }
+
+    private VideoResponse toVideoResponse(String videoId, JsonNode v0) {
+        JsonNode snippet = v0.path("snippet");
+        JsonNode stats = v0.path("statistics");
+
+        VideoResponse resp = new VideoResponse();
+        resp.setVideoId(videoId);
+        resp.setTitle(snippet.path("title").asText(null));
+        resp.setChannelId(snippet.path("channelId").asText(null));
+        resp.setChannelTitle(snippet.path("channelTitle").asText(null));
+        resp.setPublishedAt(snippet.path("publishedAt").asText(null));
+        resp.setViewCount(stats.path("viewCount").isMissingNode() ? null : stats.path("viewCount").asLong());
+        resp.setLikeCount(stats.path("likeCount").isMissingNode() ? null : stats.path("likeCount").asLong());
+        resp.setCommentCount(stats.path("commentCount").isMissingNode() ? null : stats.path("commentCount").asLong());
+        return resp;
+    }
+
+    // --- 댓글 데이터 조회 ---
+    // 페이지는 캐시에 원본 바이트로 두고 String/JsonNode 없이 바로 스트리밍 파싱하며,
+    // 다음 페이지 요청은 nextPageToken 이 확인되면 바로 나가며 하위 처리는 parallel 스케줄러에서 진행된다.
+    Flux<CommentDto> fetchComments(String videoId, int limit) {
+        return fetchCommentPages(videoId, limit)
+                .publishOn(Schedulers.parallel())
+                .concatMapIterable(CommentPage::comments);
+    }
+
+    private Flux<CommentPage> fetchCommentPages(String videoId, int limit) {
+        int remain = Math.max(0, limit);
+        if (remain == 0)
+            return Flux.empty();
 
-        // 최다 댓글 시간
-        int peakHour = IntStream.range(0, 24)
-                .boxed()
-                .max(Comparator.comparingInt(h -> hourlyCounts[h]))
-                .orElse(0);
-
-        // 활동 많은 상위 3개 시간대
-        List<Integer> topActiveHours = IntStream.range(0, 24)
-                .boxed()
-                .sorted((h1, h2) -> Integer.compare(hourlyCounts[h2], hourlyCounts[h1]))
-                .limit(3)
-                .collect(Collectors.toList());
-
-        // 댓글 작성 기간
-        Duration duration = Duration.between(firstCommentTime, lastCommentTime);
-        String totalCommentPeriod = String.format("%d일 %d시간", duration.toDays(), duration.toHours() % 24);
-
-        // 시간당 평균 댓글 수
-        double totalHours = duration.toSeconds() / 3600.0;
-        double averageCommentsPerHour = (totalHours > 0) ? (double) comments.size() / totalHours : 0;
-
-        return AnalysisDto.builder()
-                .hourlyCommentCount(IntStream.of(hourlyCounts).boxed().collect(Collectors.toList()))
-                .peakHour(peakHour)
-                .topActiveHours(topActiveHours)
-                .totalCommentPeriod(totalCommentPeriod)
-                .averageCommentsPerHour(averageCommentsPerHour)
-                .build();
+        return fetchCommentPage(videoId, null, remain)
+                .expand(page -> page.nextPageToken() != null && page.remain() > 0
+                        ? fetchCommentPage(videoId, page.nextPageToken(), page.remain())
+                        : Mono.empty());
+    }
+
+    private Mono<CommentPage> fetchCommentPage(String videoId, String token, int remain) {
+        int pageSize = Math.min(100, remain); // 100개 단위로 요청
+
+        var key = YoutubeResponseCache.Key.commentPage(videoId, token, pageSize);
+        return cache.get(key, () -> quota.submit(YoutubeQuotaScheduler.LIST_COST, () -> metrics.youtubeCall("commentThreads", yt.get()
+                .uri(b -> b.path("/commentThreads")
+                        .queryParam("part", "snippet,replies")
+                        .queryParam("textFormat", "plainText")
+                        .queryParam("order", "time")
+                        .queryParam("maxResults", pageSize)
+                        .queryParam("videoId", videoId)
+                        .queryParam("key", apikey)
+                        .queryParamIfPresent("pageToken", Optional.ofNullable(token))
+                        .build())
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, res ->
+                        res.bodyToMono(String.class).defaultIfEmpty("")
+                                .map(body -> YoutubeQuotaScheduler.errorFor(res, body, "댓글 조회 오류: ")))
+                .onStatus(HttpStatusCode::is5xxServerError, res ->
+                        res.bodyToMono(String.class)
+                                .map(body -> new RuntimeException("댓글 서버 오류: " + body)))
+                .bodyToMono(byte[].class))))
+                .map(json -> {
+                    CommentThreadsParser.Page page;
+                    long parseStart = System.nanoTime();
+                    try {
+                        page = CommentThreadsParser.parse(json, repliesEnabled);
+                    } catch (IOException e) {
+                        throw new RuntimeException("댓글 응답 파싱 실패: " + e.getMessage(), e);
+                    }
+                    metrics.recordParse("commentThreads", System.nanoTime() - parseStart);
+                    return page;
+                })
+                .flatMap(page -> expandReplies(page)
+                        .map(comments -> new CommentPage(comments, page.nextPageToken(), remain - pageSize)));
+    }
+
+    // --- 답글 펼치기 ---
+    // 인라인 답글이 모자란 스레드만 나머지를 동시에 받아, 각 스레드의 최상위 댓글 바로 뒤에 답글을 붙인다.
+    // 인라인 답글과 /comments 결과가 겹치므로 commentId 로 중복을 거른다.
+    private Mono<List<CommentDto>> expandReplies(CommentThreadsParser.Page page) {
+        if (!repliesEnabled || page.partialThreads().isEmpty())
+            return Mono.just(page.comments());
+
+        return Flux.fromIterable(page.partialThreads())
+                .flatMap(parentId -> fetchReplies(parentId).map(replies -> Map.entry(parentId, replies)),
+                        Math.max(1, replyParallelism))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(expanded -> {
+                    int total = page.comments().size();
+                    for (List<CommentDto> replies : expanded.values())
+                        total += replies.size();
+                    CommentIdSet seen = new CommentIdSet(total);
+                    List<CommentDto> out = new ArrayList<>(total);
+                    for (CommentDto c : page.comments()) {
+                        if (!seen.add(c.getCommentId()))
+                            continue;
+                        out.add(c);
+                        List<CommentDto> replies = c.getParentId() == null ? expanded.get(c.getCommentId()) : null;
+                        if (replies == null)
+                            continue;
+                        for (CommentDto r : replies) {
+                            if (seen.add(r.getCommentId()))
+                                out.add(r);
+                        }
+                    }
+                    return out;
+                });
+    }
+
+    // 스레드 하나의 답글 전체 (최대 maxRepliesPerThread 개). 실패하면 인라인 답글만 남기고 계속한다.
+    // 부가 호출이므로 BACKGROUND 레인으로 보내고, 토큰 대기 시간을 넘기면 인라인 답글만 쓴다
+    private Mono<List<CommentDto>> fetchReplies(String parentId) {
+        int max = Math.max(1, maxRepliesPerThread);
+        return fetchReplyPage(parentId, null, max)
+                .expand(page -> page.nextPageToken() != null && page.remain() > 0
+                        ? fetchReplyPage(parentId, page.nextPageToken(), page.remain())
+                        : Mono.empty())
+                .concatMapIterable(CommentPage::comments)
+                .take(max)
+                .collectList()
+                .contextWrite(YoutubeQuotaScheduler.lane(YoutubeQuotaScheduler.Lane.BACKGROUND))
+                .onErrorResume(e -> {
+                    log.warn("reply expansion failed parentId={}: {}", parentId, e.getMessage());
+                    return Mono.just(List.of());
+                });
+    }
+
+    private Mono<CommentPage> fetchReplyPage(String parentId, String token, int remain) {
+        int pageSize = Math.min(100, remain);
+
+        var key = YoutubeResponseCache.Key.replyPage(parentId, token, pageSize);
+        return cache.get(key, () -> quota.submit(YoutubeQuotaScheduler.LIST_COST, () -> metrics.youtubeCall("comments", yt.get()
+                .uri(b -> b.path("/comments")
+                        .queryParam("part", "snippet")
+                        .queryParam("textFormat", "plainText")
+                        .queryParam("maxResults", pageSize)
+                        .queryParam("parentId", parentId)
+                        .queryParam("key", apikey)
+                        .queryParamIfPresent("pageToken", Optional.ofNullable(token))
+                        .build())
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, res ->
+                        res.bodyToMono(String.class).defaultIfEmpty("")
+                                .map(body -> YoutubeQuotaScheduler.errorFor(res, body, "답글 조회 오류: ")))
+                .onStatus(HttpStatusCode::is5xxServerError, res ->
+                        res.bodyToMono(String.class)
+                                .map(body -> new RuntimeException("댓글 서버 오류: " + body)))
+                .bodyToMono(byte[].class))))
+                .map(json -> {
+                    CommentThreadsParser.Page page;
+                    long parseStart = System.nanoTime();
+                    try {
+                        page = CommentThreadsParser.parseReplies(json);
+                    } catch (IOException e) {
+                        throw new RuntimeException("답글 응답 파싱 실패: " + e.getMessage(), e);
+                    }
+                    metrics.recordParse("comments", System.nanoTime() - parseStart);
+                    // 응답에 parentId 가 빠져 있어도 어느 스레드의 답글인지는 요청으로 안다
+                    page.comments().forEach(c -> {
+                        if (c.getParentId() == null)
+                            c.setParentId(parentId);
+                    });
+                    return new CommentPage(page.comments(), page.nextPageToken(), remain - page.comments().size());
+                });
+    }
+
+    private record CommentPage(List<CommentDto> comments, String nextPageToken, int remain) {}
+
+    // 기존 동기 버전의 catch 블록과 같은 메시지로 감싼다
+    private RuntimeException toFetchException(Throwable e) {
+        if (e instanceof WebClientRequestException)
+            return new RuntimeException("네트워크 오류: " + e.getMessage(), e);
+        if (e instanceof TimeoutException || e instanceof java.util.concurrent.TimeoutException)
+            return new RuntimeException("YouTube API 응답 지연", e);
+        return new RuntimeException("Failed to fetch YouTube data: " + e.getMessage(), e);
+    }
+
+    // --- 추가: 댓글 활동 분석 ---
+    public AnalysisDto analyzeCommentsActivity(List<CommentDto> comments) {
+        return analyzeCommentsActivity(comments, ZoneOffset.UTC);
+    }
+
+    public AnalysisDto analyzeCommentsActivity(List<CommentDto> comments, ZoneId zone) {
+        ActivityStats stats = new ActivityStats(zone);
+        if (comments != null) {
+            for (CommentDto c : comments)
+                stats.add(c);
+        }
+        return stats.toDto();
     }
 }
@@ -0,0 +1,37 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /video/{videoId}/stream 으로 흘려보내는 이벤트 한 건 (NDJSON 한 줄 또는 SSE data 하나).
+ * type: meta → comments / analysis / sentiment (반복) → done
+ */
+public record VideoStreamEvent(String type, Object data) {
+
+    /** 배치 하나의 감성 결과와 지금까지의 누적 감성 통계 */
+    public record SentimentUpdate(Map<String, Integer> predictions, SentimentDto total) {}
+
+    /** 스트림 마지막 요약 */
+    public record Summary(long comments, AnalysisDto analysis, SentimentDto sentiment) {}
+
+    static VideoStreamEvent meta(VideoResponse meta) {
+        return new VideoStreamEvent("meta", meta);
+    }
+
+    static VideoStreamEvent comments(List<CommentDto> page) {
+        return new VideoStreamEvent("comments", page);
+    }
+
+    static VideoStreamEvent analysis(AnalysisDto analysis) {
+        return new VideoStreamEvent("analysis", analysis);
+    }
+
+    static VideoStreamEvent sentiment(SentimentUpdate update) {
+        return new VideoStreamEvent("sentiment", update);
+    }
+
+    static VideoStreamEvent done(Summary summary) {
+        return new VideoStreamEvent("done", summary);
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.retry.Retry;
+
+/**
+ * YouTube Data API 호출을 quota unit 기준 토큰 버킷으로 내보낸다.
+ *
+ * - 버킷은 daily-units 를 refill-window-sec(기본 하루)에 고르게 나눈 속도로 채워지고, burst-units 까지 모아 둘 수 있다.
+ *   기본값(10000 unit / 86400초)이면 꾸준히 낼 수 있는 속도는 초당 약 0.116 unit (목록 호출 분당 7회 남짓)이다.
+ *   burst 를 다 쓴 뒤 max-wait-ms(10초) 동안 차는 토큰은 1개 남짓이라, 그 이상 몰리는 INTERACTIVE 요청은
+ *   대기 시간 초과로 실패한다. 창을 줄이면 낮 시간에 더 많이 쓰는 대신 일일 할당량을 일찍 다 쓸 수 있다
+ *   (그때는 403 quotaExceeded 로 멈춘다).
+ * - INTERACTIVE 레인이 항상 먼저 나가고, BACKGROUND 레인은 버킷에 background-reserve-units 이상이
+ *   남을 때만 나간다 (사용자 요청용 여유분을 남겨 둔다).
+ * - 429 / 403 rateLimitExceeded 는 지수 백오프(Retry-After 우선) 동안 모든 레인을 멈추고 재시도,
+ *   403 quotaExceeded 는 quota-exceeded-pause-sec 동안 멈추며 그동안 INTERACTIVE 요청은 바로 실패시킨다.
+ * - 토큰을 무한정 기다리지 않는다. 레인별로 max-wait-ms / background-max-wait-ms 안에 토큰을 못 얻거나
+ *   대기열이 max-pending 개로 차 있으면 QuotaException 으로 바로 실패시킨다.
+ *
+ * 레인은 Reactor Context 로 전달한다 (기본 INTERACTIVE). 예: {@code mono.contextWrite(YoutubeQuotaScheduler.lane(Lane.BACKGROUND))}
+ * 여러 영상 일괄 분석과 답글 펼치기는 BACKGROUND 로 보낸다.
+ */
+@Component
+@Slf4j
+public class YoutubeQuotaScheduler {
+
+    public enum Lane { INTERACTIVE, BACKGROUND }
+
+    /** videos.list / commentThreads.list / comments.list 의 quota 비용 */
+    public static final int LIST_COST = 1;
+
+    private static final Object LANE_KEY = Lane.class;
+
+    private final boolean enabled;
+    private final double capacity;
+    private final double reserve;
+    private final double unitsPerNano;
+    private final int maxRetries;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final long quotaPauseNanos;
+    private final Duration interactiveMaxWait; // null 이면 제한 없음
+    private final Duration backgroundMaxWait;
+    private final int maxPending;
+    private LongSupplier clock = System::nanoTime; // 테스트에서 바꿔 끼운다
+
+    // 아래 상태는 모두 this 로 보호
+    private final ArrayDeque<Waiter> interactive = new ArrayDeque<>();
+    private final ArrayDeque<Waiter> background = new ArrayDeque<>();
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+    private long exhaustedUntil;
+    private int consecutiveThrottles;
+    private boolean timerArmed;
+    private long timerAt;
+
+    private long granted;
+    private long throttled;
+    private long quotaExceeded;
+    private long rejected;
+
+    public YoutubeQuotaScheduler(
+            @Value("${youtube.quota.enabled:true}") boolean enabled,
+            @Value("${youtube.quota.daily-units:10000}") long dailyUnits,
+            @Value("${youtube.quota.refill-window-sec:86400}") long refillWindowSec,
+            @Value("${youtube.quota.burst-units:300}") long burstUnits,
+            @Value("${youtube.quota.background-reserve-units:100}") long backgroundReserveUnits,
+            @Value("${youtube.quota.max-retries:3}") int maxRetries,
+            @Value("${youtube.quota.backoff-base-ms:500}") long backoffBaseMs,
+            @Value("${youtube.quota.backoff-max-ms:30000}") long backoffMaxMs,
+            @Value("${youtube.quota.quota-exceeded-pause-sec:600}") long quotaExceededPauseSec,
+            @Value("${youtube.quota.max-wait-ms:10000}") long maxWaitMs,
+            @Value("${youtube.quota.background-max-wait-ms:120000}") long backgroundMaxWaitMs,
+            @Value("${youtube.quota.max-pending:1000}") int maxPending) {
+        this.enabled = enabled;
+        this.capacity = Math.max(1, burstUnits);
+        this.reserve = Math.max(0, Math.min(backgroundReserveUnits, burstUnits - 1));
+        this.unitsPerNano = (double) Math.max(1, dailyUnits) / TimeUnit.SECONDS.toNanos(Math.max(1, refillWindowSec));
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseBackoff = Duration.ofMillis(Math.max(1, backoffBaseMs));
+        this.maxBackoff = Duration.ofMillis(Math.max(backoffBaseMs, backoffMaxMs));
+        this.quotaPauseNanos = TimeUnit.SECONDS.toNanos(Math.max(1, quotaExceededPauseSec));
+        this.interactiveMaxWait = maxWaitMs > 0 ? Duration.ofMillis(maxWaitMs) : null;
+        this.backgroundMaxWait = backgroundMaxWaitMs > 0 ? Duration.ofMillis(backgroundMaxWaitMs) : null;
+        this.maxPending = Math.max(1, maxPending);
+        this.tokens = capacity;
+        this.refilledAt = this.pausedUntil = this.exhaustedUntil = clock.getAsLong();
+    }
+
+    public static Context lane(Lane lane) {
+        return Context.of(LANE_KEY, lane);
+    }
+
+    /**
+     * cost 만큼의 토큰을 얻은 뒤 call 을 구독한다. 스로틀 응답(QuotaException.retryable)은 토큰을 다시 얻어 재시도한다.
+     */
+    public <T> Mono<T> submit(int cost, Supplier<Mono<T>> call) {
+        if (!enabled)
+            return Mono.defer(call);
+
+        return Mono.deferContextual(ctx -> acquireWithin(ctx.getOrDefault(LANE_KEY, Lane.INTERACTIVE), cost))
+                .then(Mono.defer(call))
+                .doOnSuccess(v -> onSuccess())
+                .doOnError(QuotaException.class, e -> {
+                    // 스케줄러가 스스로 거절한 것은 API 응답이 아니므로 백오프를 늘리지 않는다
+                    if (!e.rejectedLocally)
+                        penalize(e);
+                })
+                .retryWhen(Retry.backoff(maxRetries, baseBackoff)
+                        .maxBackoff(maxBackoff)
+                        .filter(e -> e instanceof QuotaException q && q.isRetryable())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    /**
+     * 4xx 응답 본문을 보고 할당량/속도 제한이면 QuotaException, 아니면 기존과 같은 RuntimeException 을 만든다.
+     */
+    static RuntimeException errorFor(ClientResponse res, String body, String message) {
+        int status = res.statusCode().value();
+        boolean rateLimited = status == HttpStatus.TOO_MANY_REQUESTS.value()
+                || (status == HttpStatus.FORBIDDEN.value()
+                        && (body.contains("rateLimitExceeded") || body.contains("userRateLimitExceeded")));
+        if (rateLimited)
+            return new QuotaException("YouTube API 속도 제한: " + body, true, retryAfter(res));
+        if (status == HttpStatus.FORBIDDEN.value() && body.contains("quotaExceeded"))
+            return new QuotaException("YouTube API 일일 할당량 초과: " + body, false, null);
+        return new RuntimeException(message + body);
+    }
+
+    private static Duration retryAfter(ClientResponse res) {
+        String v = res.headers().asHttpHeaders().getFirst("Retry-After");
+        if (v == null)
+            return null;
+        try {
+            return Duration.ofSeconds(Long.parseLong(v.trim()));
+        } catch (NumberFormatException e) {
+            return null; // HTTP-date 형식은 무시하고 지수 백오프 사용
+        }
+    }
+
+    // --- 토큰 버킷 ---
+
+    // 대기 시간이 다 되면 구독을 끊어(대기열에서 빠짐) 바로 실패시킨다
+    private Mono<Void> acquireWithin(Lane lane, int cost) {
+        Duration maxWait = lane == Lane.INTERACTIVE ? interactiveMaxWait : backgroundMaxWait;
+        Mono<Void> acquire = acquire(lane, cost);
+        if (maxWait == null)
+            return acquire;
+        return acquire.timeout(maxWait, Mono.error(() -> reject(
+                "YouTube API 토큰 대기 시간 초과 (" + lane + ", " + maxWait.toMillis() + "ms)")));
+    }
+
+    private synchronized QuotaException reject(String message) {
+        rejected++;
+        return QuotaException.rejected(message);
+    }
+
+    private Mono<Void> acquire(Lane lane, int cost) {
+        return Mono.create(sink -> {
+            Waiter w = new Waiter(Math.max(0, cost), sink);
+            synchronized (this) {
+                ArrayDeque<Waiter> queue = lane == Lane.INTERACTIVE ? interactive : background;
+                if (lane == Lane.INTERACTIVE && clock.getAsLong() - exhaustedUntil < 0) {
+                    rejected++;
+                    sink.error(QuotaException.rejected("YouTube API 일일 할당량 초과 (대기 중)"));
+                    return;
+                }
+                if (queue.size() >= maxPending) {
+                    rejected++;
+                    sink.error(QuotaException.rejected("YouTube API 호출 대기열이 가득 찼습니다 (" + lane + ")"));
+                    return;
+                }
+                queue.add(w);
+            }
+            sink.onCancel(() -> cancel(lane, w));
+            drain();
+        });
+    }
+
+    // 취소된 요청은 줄 가운데 있어도 바로 빼서 max-pending 자리를 돌려준다
+    private void cancel(Lane lane, Waiter w) {
+        boolean removed;
+        synchronized (this) {
+            removed = (lane == Lane.INTERACTIVE ? interactive : background).remove(w);
+        }
+        if (removed)
+            drain(); // 맨 앞이 빠졌으면 다음 요청이 나갈 수 있다
+    }
+
+    private void drain() {
+        List<MonoSink<Void>> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            refill(now);
+
+            long waitNanos;
+            if (now - pausedUntil < 0) {
+                waitNanos = pausedUntil - now;
+            } else {
+                waitNanos = take(interactive, 0, ready);
+                // 사용자 요청이 밀려 있으면 백그라운드는 기다린다
+                if (interactive.isEmpty())
+                    waitNanos = take(background, reserve, ready);
+            }
+            granted += ready.size();
+
+            if (waitNanos > 0)
+                armTimer(now, waitNanos);
+        }
+        ready.forEach(MonoSink::success);
+    }
+
+    /** 큐 앞에서부터 토큰이 되는 만큼 내보내고, 남은 요청이 있으면 다음 토큰까지의 대기 시간을 돌려준다. */
+    private long take(ArrayDeque<Waiter> queue, double floor, List<MonoSink<Void>> ready) {
+        Waiter w;
+        while ((w = queue.peek()) != null) {
+            if (tokens - w.cost < floor)
+                return Math.max(1, (long) Math.ceil((w.cost + floor - tokens) / unitsPerNano));
+            tokens -= w.cost;
+            queue.poll();
+            ready.add(w.sink);
+        }
+        return 0;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * unitsPerNano);
+        refilledAt = now;
+    }
+
+    private void armTimer(long now, long waitNanos) {
+        long at = now + waitNanos;
+        if (timerArmed && at - timerAt >= 0)
+            return;
+        timerArmed = true;
+        timerAt = at;
+        Schedulers.parallel().schedule(() -> {
+            synchronized (this) {
+                timerArmed = false;
+            }
+            drain();
+        }, waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // --- 백오프 ---
+
+    private synchronized void onSuccess() {
+        consecutiveThrottles = 0;
+    }
+
+    private void penalize(QuotaException e) {
+        synchronized (this) {
+            long now = clock.getAsLong();
+            long pause;
+            if (e.isRetryable()) {
+                throttled++;
+                consecutiveThrottles++;
+                pause = e.retryAfter != null
+                        ? e.retryAfter.toNanos()
+                        : Math.min(maxBackoff.toNanos(),
+                                baseBackoff.toNanos() << Math.min(20, consecutiveThrottles - 1));
+            } else {
+                quotaExceeded++;
+                pause = quotaPauseNanos;
+                exhaustedUntil = now + pause;
+            }
+            if (pausedUntil - (now + pause) < 0)
+                pausedUntil = now + pause;
+            log.warn("YouTube quota backoff {}ms: {}", TimeUnit.NANOSECONDS.toMillis(pause), e.getMessage());
+        }
+        drain(); // 대기 중인 요청이 pausedUntil 에 다시 깨어나도록 타이머를 건다
+    }
+
+    public synchronized Stats stats() {
+        long now = clock.getAsLong();
+        refill(now);
+        return new Stats(enabled, tokens, capacity, interactive.size(), background.size(),
+                granted, throttled, quotaExceeded, rejected,
+                Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - now)));
+    }
+
+    public record Stats(boolean enabled, double availableUnits, double burstUnits,
+                        int interactiveWaiting, int backgroundWaiting,
+                        long granted, long throttled, long quotaExceeded, long rejected,
+                        long pausedForMs) {}
+
+    private static final class Waiter {
+        final int cost;
+        final MonoSink<Void> sink;
+
+        Waiter(int cost, MonoSink<Void> sink) {
+            this.cost = cost;
+            this.sink = sink;
+        }
+    }
+
+    /** 429 / 403 rateLimitExceeded(재시도 가능) 또는 403 quotaExceeded(재시도 불가) */
+    public static class QuotaException extends RuntimeException {
+        private final boolean retryable;
+        private final Duration retryAfter;
+        private final boolean rejectedLocally; // 호출 전에 스케줄러가 거절 (할당량 소진 대기, 대기 시간 초과, 대기열 가득)
+
+        QuotaException(String message, boolean retryable, Duration retryAfter) {
+            this(message, retryable, retryAfter, false);
+        }
+
+        private QuotaException(String message, boolean retryable, Duration retryAfter, boolean rejectedLocally) {
+            super(message);
+            this.retryable = retryable;
+            this.retryAfter = retryAfter;
+            this.rejectedLocally = rejectedLocally;
+        }
+
+        static QuotaException rejected(String message) {
+            return new QuotaException(message, false, null, true);
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+}
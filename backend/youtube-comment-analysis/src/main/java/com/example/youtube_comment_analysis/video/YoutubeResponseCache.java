@@ -0,0 +1,192 @@
+package com.example.youtube_comment_analysis.video;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * YouTube API 원본 응답(byte[]) 캐시.
+ * 1차: Caffeine(W-TinyLFU) 메모리 캐시, 응답 바이트 수 기준으로 크기 제한
+ * 2차: youtube.cache.disk-dir 이 설정된 경우에만 사용하는 파일 캐시 (재시작 후에도 유지)
+ * /videos 와 /commentThreads 는 TTL 을 따로 가진다. 답글 페이지(/comments)는 /commentThreads 와 같은 TTL.
+ */
+@Component
+@Slf4j
+public class YoutubeResponseCache {
+
+    enum Kind { VIDEOS, COMMENT_THREADS, COMMENT_REPLIES }
+
+    record Key(Kind kind, String videoId, String pageToken, int pageSize) {
+
+        static Key videos(String videoId) {
+            return new Key(Kind.VIDEOS, videoId, null, 0);
+        }
+
+        static Key commentPage(String videoId, String pageToken, int pageSize) {
+            return new Key(Kind.COMMENT_THREADS, videoId, pageToken, pageSize);
+        }
+
+        // 답글 페이지는 videoId 자리에 부모 댓글 id 를 둔다
+        static Key replyPage(String parentId, String pageToken, int pageSize) {
+            return new Key(Kind.COMMENT_REPLIES, parentId, pageToken, pageSize);
+        }
+
+        String fileName() {
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                String raw = videoId + "|" + (pageToken == null ? "" : pageToken) + "|" + pageSize;
+                return kind.name().toLowerCase() + "-" + HexFormat.of().formatHex(md.digest(raw.getBytes(StandardCharsets.UTF_8))) + ".json";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, long diskHits, long diskWrites,
+                        long entries, long weightedBytes) {}
+
+    private final Duration videosTtl;
+    private final Duration commentsTtl;
+    private final Path diskDir; // null 이면 디스크 계층 사용 안 함
+    private final Cache<Key, byte[]> memory;
+
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong diskWrites = new AtomicLong();
+
+    public YoutubeResponseCache(
+            @Value("${youtube.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${youtube.cache.videos-ttl-sec:300}") long videosTtlSec,
+            @Value("${youtube.cache.comments-ttl-sec:60}") long commentsTtlSec,
+            @Value("${youtube.cache.disk-dir:}") String diskDir) {
+        this.videosTtl = Duration.ofSeconds(videosTtlSec);
+        this.commentsTtl = Duration.ofSeconds(commentsTtlSec);
+        this.diskDir = diskDir == null || diskDir.isBlank() ? null : Path.of(diskDir);
+
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key k, byte[] v) -> v.length)
+                .expireAfter(new Expiry<Key, byte[]>() {
+                    @Override
+                    public long expireAfterCreate(Key key, byte[] value, long currentTime) {
+                        return ttl(key).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, byte[] value, long currentTime, long currentDuration) {
+                        return ttl(key).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, byte[] value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        if (this.diskDir != null) {
+            try {
+                Files.createDirectories(this.diskDir);
+            } catch (IOException e) {
+                throw new IllegalStateException("캐시 디렉터리 생성 실패: " + this.diskDir, e);
+            }
+        }
+    }
+
+    /** 메모리 → 디스크 → loader 순서로 조회하고, loader 결과는 두 계층에 모두 채운다. */
+    Mono<byte[]> get(Key key, Supplier<Mono<byte[]>> loader) {
+        return Mono.defer(() -> {
+            byte[] hit = memory.getIfPresent(key);
+            if (hit != null)
+                return Mono.just(hit);
+
+            Mono<byte[]> load = Mono.defer(() -> loader.get().doOnNext(bytes -> store(key, bytes)));
+            if (diskDir == null)
+                return load;
+
+            return Mono.fromCallable(() -> readDisk(key))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .switchIfEmpty(load);
+        });
+    }
+
+    public Stats stats() {
+        CacheStats s = memory.stats();
+        return new Stats(s.hitCount(), s.missCount(), s.evictionCount(),
+                diskHits.get(), diskWrites.get(),
+                memory.estimatedSize(),
+                memory.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+    }
+
+    private Duration ttl(Key key) {
+        return key.kind() == Kind.VIDEOS ? videosTtl : commentsTtl;
+    }
+
+    private void store(Key key, byte[] bytes) {
+        memory.put(key, bytes);
+        if (diskDir != null) {
+            Mono.fromRunnable(() -> writeDisk(key, bytes))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe();
+        }
+    }
+
+    // 남은 TTL 만큼만 메모리에 올린다 (디스크에 쓴 시각 기준)
+    private byte[] readDisk(Key key) {
+        Path file = diskDir.resolve(key.fileName());
+        try {
+            if (!Files.exists(file))
+                return null;
+
+            Instant expiresAt = Files.getLastModifiedTime(file).toInstant().plus(ttl(key));
+            Duration remaining = Duration.between(Instant.now(), expiresAt);
+            if (remaining.isNegative() || remaining.isZero()) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            diskHits.incrementAndGet();
+            memory.policy().expireVariably().ifPresentOrElse(
+                    v -> v.put(key, bytes, remaining),
+                    () -> memory.put(key, bytes));
+            return bytes;
+        } catch (IOException e) {
+            log.warn("디스크 캐시 읽기 실패 file={}", file, e);
+            return null;
+        }
+    }
+
+    private void writeDisk(Key key, byte[] bytes) {
+        Path file = diskDir.resolve(key.fileName());
+        try {
+            Path tmp = Files.createTempFile(diskDir, "yt-", ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskWrites.incrementAndGet();
+        } catch (IOException e) {
+            log.warn("디스크 캐시 쓰기 실패 file={}", file, e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.youtube_comment_analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * 로컬 stub 감성 서버에 지연/오류를 주입해 AiSender 의 재시도, 서킷 브레이커, 헤징을 확인한다.
+ * stub 은 sentiment_server.py 처럼 요청 댓글마다 prediction 을 붙여 돌려준다.
+ */
+class AiSenderResilienceTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final List<StubServer> servers = new ArrayList<>();
+	private FastApiReplicas replicas; // 마지막으로 만든 sender 의 레플리카
+	private int sequence;
+
+	@AfterEach
+	void tearDown() {
+		servers.forEach(s -> s.server.stop(0));
+	}
+
+	@Test
+	void hedgedReplicaAnswersWhenOneReplicaStalls() throws IOException {
+		// 느린 레플리카는 매번 3초 멈춘다. 시도 타임아웃(1초)에 재시도가 없으니 헤징 없이는 실패한다
+		StubServer slow = stub(n -> -3000);
+		StubServer fast = stub(n -> 200);
+		AiSender sender = sender(slow.url() + "," + fast.url(), 1000, 0, 150, 100);
+
+		for (int i = 0; i < 20; i++)
+			assertThat(sender.send(comments(10)).success()).isEqualTo(10);
+
+		// 라운드 로빈으로 절반은 느린 쪽이 먼저 받지만, hedge delay 뒤 빠른 쪽이 받아 준다.
+		// 빠른 쪽은 배치마다 정확히 한 번 응답한다 (먼저 받았거나, 헤징으로 받았거나)
+		assertThat(slow.hits.get()).isGreaterThan(0);
+		assertThat(fast.hits.get()).isEqualTo(20);
+	}
+
+	@Test
+	void singleReplicaWithHedgeDelayStillRetriesServerErrors() throws IOException {
+		StubServer broken = stub(n -> 503);
+		AiSender sender = sender(broken.url(), 1000, 2, 150, 100);
+
+		AiSender.SendResult r = sender.send(comments(10));
+
+		// 배치 타임아웃(5초)까지 매달리지 않고 시도마다 오류가 나서 재시도를 다 쓴다
+		assertThat(r.otherError()).isEqualTo(10);
+		assertThat(broken.hits.get()).isEqualTo(3);
+	}
+
+	@Test
+	void hedgeWithoutAvailableAlternateDoesNotHideThePrimaryError() throws IOException {
+		StubServer broken = stub(n -> 503);
+		StubServer opened = stub(n -> 200);
+		AiSender sender = sender(broken.url() + "," + opened.url(), 1000, 2, 150, 100);
+		// 두 번째 레플리카의 브레이커를 열어 둔다: 헤지할 곳이 없다
+		List<FastApiReplicas.Replica> all = replicaList();
+		for (int i = 0; i < 100; i++)
+			all.get(1).breaker().onFailure();
+
+		AiSender.SendResult r = sender.send(comments(10));
+
+		assertThat(r.otherError()).isEqualTo(10);
+		assertThat(broken.hits.get()).isEqualTo(3);
+		assertThat(opened.hits.get()).isZero();
+	}
+
+	@Test
+	void serverErrorsAreRetriedAndCountedAsOtherErrors() throws IOException {
+		StubServer broken = stub(n -> 503);
+		AiSender sender = sender(broken.url(), 1000, 2, 0, 100);
+
+		AiSender.SendResult r = sender.send(comments(10));
+
+		assertThat(r.success()).isZero();
+		assertThat(r.clientError()).isZero();
+		assertThat(r.otherError()).isEqualTo(10);
+		assertThat(broken.hits.get()).isEqualTo(3);
+	}
+
+	@Test
+	void clientErrorsAreNotRetried() throws IOException {
+		StubServer rejecting = stub(n -> 400);
+		AiSender sender = sender(rejecting.url(), 1000, 2, 0, 100);
+
+		AiSender.SendResult r = sender.send(comments(10));
+
+		assertThat(r.clientError()).isEqualTo(10);
+		assertThat(r.otherError()).isZero();
+		assertThat(rejecting.hits.get()).isEqualTo(1);
+	}
+
+	@Test
+	void openCircuitFailsFastWithoutCallingTheServer() throws IOException {
+		StubServer broken = stub(n -> 503);
+		AiSender sender = sender(broken.url(), 1000, 0, 0, 3);
+
+		for (int i = 0; i < 3; i++)
+			sender.send(comments(10));
+		assertThat(broken.hits.get()).isEqualTo(3);
+
+		assertThat(replicas.stats()).extracting(FastApiReplicas.ReplicaStats::state)
+				.containsExactly(FastApiReplicas.CircuitBreaker.State.OPEN);
+
+		AiSender.SendResult r = sender.send(comments(10));
+
+		assertThat(r.otherError()).isEqualTo(10);
+		assertThat(broken.hits.get()).isEqualTo(3);
+		assertThat(replicas.stats().get(0).timesOpened()).isEqualTo(1);
+	}
+
+	@Test
+	void timedOutAttemptIsRetriedWithinTheBatchBudget() throws IOException {
+		// 첫 요청만 3초 멈추고 이후는 정상: 시도 타임아웃(300ms) 뒤 재시도로 성공해야 한다
+		StubServer flaky = stub(n -> n == 1 ? -3000 : 200);
+		AiSender sender = sender(flaky.url(), 300, 2, 0, 5);
+
+		AiSender.SendResult r = sender.send(comments(10));
+
+		// 멈춘 첫 시도를 기다리지 않고 두 번째 시도로 성공한다 (배치 타임아웃 5초 안)
+		assertThat(r.success()).isEqualTo(10);
+		assertThat(r.otherError()).isZero();
+		assertThat(flaky.hits.get()).isEqualTo(2);
+	}
+
+	private AiSender sender(String baseUrls, long attemptTimeoutMs, int maxRetries, long hedgeDelayMs,
+			int failureThreshold) {
+		replicas = new FastApiReplicas(baseUrls, attemptTimeoutMs, maxRetries, 20, hedgeDelayMs,
+				failureThreshold, 60_000);
+		AiSender sender = new AiSender(new JsonAiTransport(WebClient.builder().build(), "/analyze/comments"),
+				new AdaptiveBatcher(false, 16, 10, 16, 2000),
+				new SentimentCache(10_000, "", 16), replicas,
+				new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+		ReflectionTestUtils.setField(sender, "timeoutMs", 5000L);
+		ReflectionTestUtils.setField(sender, "maxBatch", 10);
+		ReflectionTestUtils.setField(sender, "maxInflight", 4);
+		return sender;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<FastApiReplicas.Replica> replicaList() {
+		return (List<FastApiReplicas.Replica>) ReflectionTestUtils.getField(replicas, "replicas");
+	}
+
+	// 캐시에 걸리지 않도록 매번 다른 텍스트
+	private List<AiSender.CommentLite> comments(int n) {
+		List<AiSender.CommentLite> out = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			int id = sequence++;
+			out.add(new AiSender.CommentLite("c" + id, "댓글 " + id));
+		}
+		return out;
+	}
+
+	/**
+	 * fault 는 n 번째(1부터) 요청의 응답 상태를 정한다. 음수면 그 밀리초만큼 멈춘 뒤 200 으로 응답한다.
+	 */
+	private StubServer stub(IntUnaryOperator fault) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		StubServer stub = new StubServer(server, new AtomicInteger());
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/analyze/comments", ex -> handle(ex, fault.applyAsInt(stub.hits.incrementAndGet())));
+		server.start();
+		servers.add(stub);
+		return stub;
+	}
+
+	private static void handle(HttpExchange ex, int status) throws IOException {
+		byte[] request = ex.getRequestBody().readAllBytes();
+		if (status < 0) {
+			try {
+				Thread.sleep(-status);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			status = 200;
+		}
+
+		byte[] body;
+		if (status == 200) {
+			JsonNode req = MAPPER.readTree(request);
+			ObjectNode resp = MAPPER.createObjectNode();
+			ArrayNode out = resp.putArray("comments");
+			for (JsonNode c : req.path("comments"))
+				out.addObject().put("id", c.path("id").asText()).put("prediction", 1);
+			body = MAPPER.writeValueAsBytes(resp);
+		} else {
+			body = ("{\"detail\":\"injected " + status + "\"}").getBytes(StandardCharsets.UTF_8);
+		}
+
+		ex.getResponseHeaders().set("Content-Type", "application/json");
+		try {
+			ex.sendResponseHeaders(status, body.length);
+			try (OutputStream os = ex.getResponseBody()) {
+				os.write(body);
+			}
+		} catch (IOException e) {
+			// 헤징/타임아웃으로 클라이언트가 먼저 끊은 경우
+		}
+	}
+
+	private record StubServer(HttpServer server, AtomicInteger hits) {
+		String url() {
+			return "http://127.0.0.1:" + server.getAddress().getPort();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.example.youtube_comment_analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * 바이너리 프레임 전송이 JSON 전송과 같은 예측을 돌려주는지 확인한다.
+ * stub 은 요청 프레임의 텍스트 길이 % 3 을 라벨로 (index, label) 응답 프레임을 만든다.
+ */
+class BinaryAiTransportTest {
+
+	private HttpServer server;
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicReference<String> contentType = new AtomicReference<>();
+	private final AtomicReference<String> idempotencyKey = new AtomicReference<>();
+
+	@AfterEach
+	void tearDown() {
+		if (server != null)
+			server.stop(0);
+	}
+
+	@Test
+	void predictionsAreMappedBackByIndex() throws IOException {
+		start(false);
+		AiSender sender = sender();
+		List<AiSender.CommentLite> comments = new ArrayList<>();
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 25; i++) {
+			String text = "댓글".repeat(i + 1) + " " + i;
+			comments.add(new AiSender.CommentLite("c" + i, text));
+			expected.put("c" + i, text.length() % 3);
+		}
+
+		Map<String, Integer> predictions = new HashMap<>();
+		AiSender.SendResult r = sender.sendBatches(comments)
+				.doOnNext(b -> predictions.putAll(b.predictions()))
+				.reduce(new AiSender.SendResult(0, 0, 0, 0), AiSender.SendResult::plus)
+				.block();
+
+		assertThat(r.success()).isEqualTo(25);
+		assertThat(predictions).isEqualTo(expected);
+		assertThat(contentType.get()).isEqualTo("application/x-sentiment-frames");
+		assertThat(idempotencyKey.get()).isNotBlank();
+	}
+
+	@Test
+	void truncatedResponseFrameIsNotRetried() throws IOException {
+		start(true);
+		AiSender sender = sender();
+
+		AiSender.SendResult r = sender.send(List.of(new AiSender.CommentLite("c1", "좋아요")));
+
+		assertThat(r.success()).isZero();
+		assertThat(r.otherError()).isEqualTo(1);
+		// 잘린 프레임은 서버 장애가 아니라 응답 형식 오류라 재시도 (max-retries 2) 하지 않는다
+		assertThat(hits.get()).isEqualTo(1);
+	}
+
+	@Test
+	void frameRoundTrip() {
+		List<AiSentimentRequest.Comment> comments = List.of(
+				new AiSentimentRequest.Comment("a", "좋아요"),
+				new AiSentimentRequest.Comment("b", ""));
+		ByteBuffer request = ByteBuffer.wrap(BinaryAiTransport.encode(comments));
+		assertThat(texts(request)).containsExactly("좋아요", "");
+
+		int[] labels = BinaryAiTransport.decode(ByteBuffer.wrap(response(new int[] { 2, 0 })), 3);
+		assertThat(labels).containsExactly(2, 0, -1);
+	}
+
+	private AiSender sender() {
+		String url = "http://127.0.0.1:" + server.getAddress().getPort();
+		AiSender sender = new AiSender(new BinaryAiTransport(WebClient.builder().build(), "/analyze/comments"),
+				new AdaptiveBatcher(false, 16, 10, 16, 2000),
+				new SentimentCache(10_000, "", 16),
+				new FastApiReplicas(url, 1000, 2, 20, 0, 5, 60_000),
+				new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+		ReflectionTestUtils.setField(sender, "timeoutMs", 5000L);
+		ReflectionTestUtils.setField(sender, "maxBatch", 10);
+		ReflectionTestUtils.setField(sender, "maxInflight", 4);
+		return sender;
+	}
+
+	private void start(boolean truncate) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/analyze/comments", ex -> handle(ex, truncate));
+		server.start();
+	}
+
+	private void handle(HttpExchange ex, boolean truncate) throws IOException {
+		hits.incrementAndGet();
+		contentType.set(ex.getRequestHeaders().getFirst("Content-Type"));
+		idempotencyKey.set(ex.getRequestHeaders().getFirst("Idempotency-Key"));
+		List<String> texts = texts(ByteBuffer.wrap(ex.getRequestBody().readAllBytes()));
+		int[] labels = new int[texts.size()];
+		for (int i = 0; i < labels.length; i++)
+			labels[i] = texts.get(i).length() % 3;
+		byte[] body = response(labels);
+		if (truncate)
+			body = Arrays.copyOf(body, body.length - 1);
+
+		ex.getResponseHeaders().set("Content-Type", "application/x-sentiment-frames");
+		ex.sendResponseHeaders(200, body.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	// 서버 쪽 디코딩: [u8 version][u32 count] count x ([u32 길이][utf8])
+	private static List<String> texts(ByteBuffer frame) {
+		assertThat(frame.get()).isEqualTo((byte) 1);
+		int count = frame.getInt();
+		List<String> out = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			byte[] text = new byte[frame.getInt()];
+			frame.get(text);
+			out.add(new String(text, StandardCharsets.UTF_8));
+		}
+		return out;
+	}
+
+	// 서버 쪽 인코딩: [u8 version][u32 count] count x ([u16 index][u8 label])
+	private static byte[] response(int[] labels) {
+		ByteBuffer b = ByteBuffer.allocate(1 + Integer.BYTES + labels.length * 3);
+		b.put((byte) 1).putInt(labels.length);
+		for (int i = 0; i < labels.length; i++)
+			b.putShort((short) i).put((byte) labels[i]);
+		return b.array();
+	}
+}
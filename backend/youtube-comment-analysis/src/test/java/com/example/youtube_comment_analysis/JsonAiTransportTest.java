@@ -0,0 +1,105 @@
+package com.example.youtube_comment_analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * sentiment_server.py 처럼 댓글 본문을 그대로 되돌려주는 응답이 기본 버퍼(256KB)를 넘어도
+ * fastApiWebClient 설정으로는 끝까지 읽히는지 확인한다.
+ */
+class JsonAiTransportTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private HttpServer server;
+	private FastApiReplicas.Replica replica;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/analyze/comments", JsonAiTransportTest::echo);
+		server.start();
+		replica = new FastApiReplicas.Replica("http://127.0.0.1:" + server.getAddress().getPort(),
+				new FastApiReplicas.CircuitBreaker(5, 60_000));
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void responseLargerThanTheDefaultBufferIsRead() {
+		WebClient client = new WebClientConfig().fastApiWebClient(replica.baseUrl(), HttpClient.create(), 500, 32768);
+		AiSentimentRequest request = longKoreanBatch();
+
+		int[] labels = new JsonAiTransport(client, "/analyze/comments").send(replica, request)
+				.block(Duration.ofSeconds(10));
+
+		assertThat(labels).hasSize(100).containsOnly(2);
+	}
+
+	@Test
+	void defaultBufferWouldRejectTheSameResponse() {
+		AiSentimentRequest request = longKoreanBatch();
+
+		Throwable error = catchThrowable(() -> new JsonAiTransport(WebClient.builder().build(), "/analyze/comments")
+				.send(replica, request)
+				.block(Duration.ofSeconds(10)));
+
+		assertThat(Stream.iterate(error, Objects::nonNull, Throwable::getCause))
+				.hasAtLeastOneElementOfType(DataBufferLimitException.class);
+	}
+
+	// 한글 1,500자(약 4KB) 댓글 100개: 되돌아오는 응답이 380KB 쯤 된다
+	private static AiSentimentRequest longKoreanBatch() {
+		List<AiSentimentRequest.Comment> comments = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			comments.add(new AiSentimentRequest.Comment("c" + i, "정말 긴 댓글입니다 ".repeat(150) + i));
+		return new AiSentimentRequest(comments, new AiSentimentRequest.Trace("req", "etag"));
+	}
+
+	private static void echo(HttpExchange ex) throws IOException {
+		JsonNode req = MAPPER.readTree(ex.getRequestBody().readAllBytes());
+		ObjectNode resp = MAPPER.createObjectNode();
+		ArrayNode out = resp.putArray("comments");
+		for (JsonNode c : req.path("comments"))
+			out.addObject()
+					.put("id", c.path("id").asText())
+					.put("text", c.path("text").asText())
+					.put("prediction", 2);
+		byte[] body = MAPPER.writeValueAsBytes(resp);
+
+		ex.getResponseHeaders().set("Content-Type", "application/json");
+		ex.sendResponseHeaders(200, body.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(body);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.youtube_comment_analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 감성 캐시 링 파일이 가득 찬 뒤에도 오래된 레코드부터 덮어쓰며 재시작 후 다시 읽히는지,
+ * 닫는 중에 들어온 put 이 해제된 매핑에 쓰지 않는지, 매핑 하나에 담을 수 없는 슬롯 수는 거부하는지 확인한다.
+ */
+class SentimentCacheTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void ringWrapsAndReloadsAfterRestart() throws IOException {
+		Path file = dir.resolve("sentiment.cache");
+		SentimentCache cache = new SentimentCache(1000, file.toString(), 4);
+		for (int i = 0; i < 6; i++)
+			cache.put(SentimentCache.keyOf("댓글 " + i), i % 3);
+		cache.close();
+
+		SentimentCache reopened = new SentimentCache(1000, file.toString(), 4);
+		// 앞의 두 개는 덮어써졌다
+		assertThat(reopened.get(SentimentCache.keyOf("댓글 0"))).isNull();
+		assertThat(reopened.get(SentimentCache.keyOf("댓글 1"))).isNull();
+		for (int i = 2; i < 6; i++)
+			assertThat(reopened.get(SentimentCache.keyOf("댓글 " + i))).isEqualTo(i % 3);
+		assertThat(reopened.stats().persisted()).isEqualTo(4);
+		reopened.close();
+	}
+
+	@Test
+	void putsRacingWithCloseNeitherFailNorWriteAfterClose() throws Exception {
+		Path file = dir.resolve("closing.cache");
+		SentimentCache cache = new SentimentCache(100_000, file.toString(), 1 << 16);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				writers.add(pool.submit(() -> {
+					for (int i = 0; i < 5_000; i++)
+						cache.put(SentimentCache.keyOf(thread + "-" + i), i % 3);
+				}));
+			}
+			cache.close();
+			for (Future<?> w : writers)
+				w.get(10, TimeUnit.SECONDS); // 닫힌 뒤의 put 은 메모리에만 남는다
+		} finally {
+			pool.shutdownNow();
+		}
+
+		SentimentCache reopened = new SentimentCache(100_000, file.toString(), 1 << 16);
+		assertThat(reopened.stats().persisted()).isLessThanOrEqualTo(20_000);
+		reopened.close();
+	}
+
+	@Test
+	void slotsBeyondASingleMappingAreRejected() {
+		Path file = dir.resolve("too-big.cache");
+
+		assertThatThrownBy(() -> new SentimentCache(1000, file.toString(), SentimentCache.MAX_FILE_SLOTS + 1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("file-slots");
+		assertThat(Files.exists(file)).isFalse();
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * 직접 짠 RFC 3339 파서가 OffsetDateTime 과 같은 epoch 초를 내는지,
+ * 범위를 벗어난 값은 다른 시각으로 바꾸지 않고 OffsetDateTime 처럼 거부하는지 확인한다.
+ */
+class ActivityStatsTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+			"2025-09-01T13:45:00Z",
+			"2025-09-01T13:45:00z",
+			"1970-01-01T00:00:00Z",
+			"1969-12-31T23:59:59Z",
+			"2024-02-29T12:00:00Z",
+			"2000-02-29T23:59:59Z",
+			"2025-12-31T23:59:59.999999999Z",
+			"2025-09-01T13:45:00.1Z",
+			"2025-09-01T13:45:00.Z",
+			"2025-09-01T13:45:00.123+09:00",
+			"2025-09-01T00:15:00-05:30",
+			"2025-01-01T00:00:00+18:00",
+			"2025-01-01T00:00:00-18:00",
+			"2025-01-01T00:00:00-00:00",
+			// 빠른 경로가 처리하지 않는 형식도 같은 값을 낸다
+			"2025-09-01T13:45Z",
+			"2025-09-01T13:45:00+09:00:30" })
+	void matchesOffsetDateTime(String value) {
+		assertThat(ActivityStats.parseEpochSeconds(value))
+				.isEqualTo(OffsetDateTime.parse(value).toEpochSecond());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+			"2025-13-40T25:61:61Z",
+			"2025-00-10T10:00:00Z",
+			"2025-02-29T10:00:00Z",
+			"2025-04-31T10:00:00Z",
+			"2025-09-01T24:00:00Z",
+			"2025-09-01T13:60:00Z",
+			"2025-09-01T13:45:60Z",
+			"2025-09-01T13:45:00.1234567890Z",
+			"2025-09-01T13:45:00+19:00",
+			"2025-09-01T13:45:00+09:60",
+			"2025-09-01T13:45:00",
+			"2025-09-01T13:45:0xZ" })
+	void rejectsWhatOffsetDateTimeRejects(String value) {
+		assertThatThrownBy(() -> OffsetDateTime.parse(value)).isInstanceOf(DateTimeParseException.class);
+		assertThatThrownBy(() -> ActivityStats.parseEpochSeconds(value)).isInstanceOf(DateTimeParseException.class);
+	}
+}
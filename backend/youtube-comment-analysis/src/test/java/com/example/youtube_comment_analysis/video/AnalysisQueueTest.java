@@ -0,0 +1,134 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 파일 큐의 at-least-once 동작: ack 한 레코드는 재시작 후 다시 나오지 않고, ack 전에 멈춘 레코드는 다시 나오며,
+ * 마지막 레코드가 잘리거나 CRC 가 깨졌으면 그 앞까지만 살리고 그 자리부터 다시 쓴다.
+ */
+class AnalysisQueueTest {
+
+	private static final int SEGMENT = 4096;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void ackedRecordsAreNotRedeliveredAfterRestart() throws Exception {
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			q.append(bytes("a"));
+			q.append(bytes("b"));
+			q.ack(q.take(1, TimeUnit.SECONDS).offset());
+			q.ack(q.take(1, TimeUnit.SECONDS).offset());
+		}
+
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			assertThat(q.take(50, TimeUnit.MILLISECONDS)).isNull();
+			assertThat(q.stats().backlogBytes()).isZero();
+		}
+	}
+
+	@Test
+	void unackedRecordIsRedeliveredAfterRestart() throws Exception {
+		long second;
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			q.append(bytes("a"));
+			second = q.append(bytes("b"));
+			q.ack(q.take(1, TimeUnit.SECONDS).offset());
+			AnalysisQueue.Entry taken = q.take(1, TimeUnit.SECONDS);
+			assertThat(taken.offset()).isEqualTo(second);
+			// 처리 중에 죽었다: ack 없음
+		}
+
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			AnalysisQueue.Entry again = q.take(1, TimeUnit.SECONDS);
+			assertThat(again.offset()).isEqualTo(second);
+			assertThat(text(again)).isEqualTo("b");
+			q.ack(again.offset());
+			assertThat(q.take(50, TimeUnit.MILLISECONDS)).isNull();
+		}
+	}
+
+	@Test
+	void tornTailRecordWithBadCrcIsDroppedAndOverwritten() throws Exception {
+		long torn;
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			q.append(bytes("a"));
+			torn = q.append(bytes("bbbbbbbb"));
+		}
+		// 길이는 쓰였지만 payload 가 다 쓰이기 전에 죽은 것처럼 한 바이트를 바꾼다
+		try (RandomAccessFile raf = new RandomAccessFile(segmentFile().toFile(), "rw")) {
+			raf.seek(torn + 8 + 3);
+			raf.write('x');
+		}
+
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			assertThat(text(q.take(1, TimeUnit.SECONDS))).isEqualTo("a");
+			assertThat(q.take(50, TimeUnit.MILLISECONDS)).isNull();
+
+			// 깨진 레코드 자리부터 다시 쓴다
+			assertThat(q.append(bytes("c"))).isEqualTo(torn);
+			assertThat(text(q.take(1, TimeUnit.SECONDS))).isEqualTo("c");
+		}
+	}
+
+	@Test
+	void truncatedSegmentRecoversUpToTheLastCompleteRecord() throws Exception {
+		long cut;
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			q.append(bytes("a"));
+			q.append(bytes("b"));
+			cut = q.append(bytes("cccccccc"));
+		}
+		// 세 번째 레코드 payload 중간에서 파일이 잘렸다 (다시 열면 0 으로 채워진다)
+		try (RandomAccessFile raf = new RandomAccessFile(segmentFile().toFile(), "rw")) {
+			raf.setLength(cut + 8 + 4);
+		}
+
+		try (AnalysisQueue q = new AnalysisQueue(dir, SEGMENT, false)) {
+			assertThat(text(q.take(1, TimeUnit.SECONDS))).isEqualTo("a");
+			assertThat(text(q.take(1, TimeUnit.SECONDS))).isEqualTo("b");
+			assertThat(q.take(50, TimeUnit.MILLISECONDS)).isNull();
+			assertThat(q.append(bytes("d"))).isEqualTo(cut);
+		}
+	}
+
+	@Test
+	void segmentsBehindTheCheckpointAreDeleted() throws Exception {
+		try (AnalysisQueue q = new AnalysisQueue(dir, 64, false)) {
+			for (int i = 0; i < 10; i++)
+				q.append(bytes("record-" + i)); // 16 바이트 레코드, 세그먼트마다 3개
+			for (int i = 0; i < 10; i++) {
+				AnalysisQueue.Entry e = q.take(1, TimeUnit.SECONDS);
+				assertThat(text(e)).isEqualTo("record-" + i);
+				q.ack(e.offset());
+			}
+			assertThat(q.stats().segments()).isEqualTo(1);
+		}
+		try (Stream<Path> files = Files.list(dir)) {
+			assertThat(files.filter(f -> f.toString().endsWith(".seg"))).hasSize(1);
+		}
+	}
+
+	private Path segmentFile() {
+		return dir.resolve(String.format("%020d.seg", 0));
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String text(AnalysisQueue.Entry e) {
+		return new String(e.payload(), StandardCharsets.UTF_8);
+	}
+}
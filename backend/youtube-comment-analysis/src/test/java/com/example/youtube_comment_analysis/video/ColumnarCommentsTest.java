@@ -0,0 +1,97 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * commentId 비교가 String.getBytes(UTF_8) 로 저장한 바이트와 똑같이 판단하는지(멀티바이트, surrogate 쌍,
+ * 짝 없는 surrogate 포함), 그리고 keepLast 로 앞부분을 버린 뒤에도 행 조회와 사전 참조가 맞는지 확인한다.
+ */
+class ColumnarCommentsTest {
+
+	// 1, 2, 3, 4 바이트 문자와 짝 없는 surrogate 를 섞은 id
+	private static final List<String> IDS = List.of(
+			"", "a", "Ugx1", "Ugx2", "\u00E9", "e\u0301", "댓글", "댓그", "😀", "😁", "a😀b", "a😀",
+			"\uD83D", "\uDE00", "?", "a\uD83Db", "a?b", "\uDE00\uD83D", "??", "\u07FF\u0800\uFFFF",
+			"Ugz" + "가".repeat(40));
+
+	@Test
+	void idEqualsMatchesUtf8ByteComparison() {
+		ColumnarComments columns = new ColumnarComments();
+		for (String id : IDS)
+			columns.append(comment(id, "a", null));
+
+		for (int row = 0; row < columns.size(); row++) {
+			byte[] stored = columns.commentId(row).getBytes(StandardCharsets.UTF_8);
+			for (String candidate : IDS) {
+				boolean expected = Arrays.equals(stored, candidate.getBytes(StandardCharsets.UTF_8));
+				assertThat(columns.idEquals(row, candidate))
+						.as("row %d (%s) vs %s", row, columns.commentId(row), candidate)
+						.isEqualTo(expected);
+			}
+		}
+	}
+
+	@Test
+	void unpairedSurrogateIsTheSameIdAsQuestionMark() {
+		ColumnarComments columns = new ColumnarComments();
+		// getBytes 는 짝 없는 surrogate 를 '?' 로 저장하므로 두 id 는 같은 행이다
+		int row = columns.append(comment("a\uD83Db", "a", null));
+		assertThat(columns.append(comment("a?b", "a", null))).isEqualTo(-1);
+		assertThat(columns.rowOf("a?b")).isEqualTo(row);
+
+		columns.append(comment("next", "a", null));
+		columns.keepLast(2);
+		assertThat(columns.rowOf("a\uD83Db")).isEqualTo(row);
+	}
+
+	@Test
+	void everyAppendedIdIsFoundAgain() {
+		ColumnarComments columns = new ColumnarComments();
+		for (String id : List.of("Ugx1", "댓글", "😀", "a😀b"))
+			columns.append(comment(id, "a", null));
+
+		assertThat(columns.rowOf("Ugx1")).isEqualTo(0);
+		assertThat(columns.rowOf("댓글")).isEqualTo(1);
+		assertThat(columns.rowOf("😀")).isEqualTo(2);
+		assertThat(columns.rowOf("a😀b")).isEqualTo(3);
+		assertThat(columns.rowOf("😁")).isEqualTo(-1);
+		assertThat(columns.append(comment("댓글", "b", null))).isEqualTo(-1);
+	}
+
+	@Test
+	void keepLastKeepsLookupsAndDictionariesConsistent() {
+		ColumnarComments columns = new ColumnarComments();
+		for (int i = 0; i < 50; i++)
+			columns.append(comment("c" + i, "author" + (i % 3), i % 5 == 0 ? null : "c" + (i - i % 5)));
+
+		columns.keepLast(10);
+
+		assertThat(columns.size()).isEqualTo(10);
+		for (int i = 0; i < 40; i++)
+			assertThat(columns.rowOf("c" + i)).isEqualTo(-1);
+		for (int i = 40; i < 50; i++) {
+			int row = columns.rowOf("c" + i);
+			assertThat(row).isEqualTo(i - 40);
+			assertThat(columns.commentId(row)).isEqualTo("c" + i);
+			assertThat(columns.text(row)).isEqualTo("text c" + i);
+			assertThat(columns.author(row)).isEqualTo("author" + (i % 3));
+			assertThat(columns.parentId(row)).isEqualTo(i % 5 == 0 ? null : "c" + (i - i % 5));
+		}
+
+		// 정리한 뒤에도 이어서 쌓고, 버린 id 는 다시 들어올 수 있다
+		assertThat(columns.append(comment("c49", "x", null))).isEqualTo(-1);
+		assertThat(columns.append(comment("c0", "author0", null))).isEqualTo(10);
+		assertThat(columns.rowOf("c0")).isEqualTo(10);
+		assertThat(columns.toDto(10).getAuthor()).isEqualTo("author0");
+	}
+
+	private static CommentDto comment(String id, String author, String parentId) {
+		return new CommentDto(id, author, "text " + id, 0L, "2025-09-01T00:00:00Z", null, parentId);
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 큐가 같은 배치를 다시 보내도(at-least-once) 감성 통계가 한 번만 세어지고,
+ * 보관 중인 댓글이 없을 때 온 결과는 누적 요약에 남는지 확인한다.
+ */
+class CommentSyncStoreTest {
+
+	private final VideoRollups rollups = new VideoRollups(1000, 3600, "", 0);
+	private final CommentSyncStore store = new CommentSyncStore(1 << 24, 1000, 3600, rollups);
+
+	@Test
+	void redeliveredLabelsAreCountedOnce() {
+		store.merge("vid1", List.of(comment("c2", "2025-09-01T02:00:00Z"), comment("c1", "2025-09-01T01:00:00Z")), true, 100);
+
+		store.addSentiment("vid1", List.of(labeled("c1", "2025-09-01T01:00:00Z", 2), labeled("c2", "2025-09-01T02:00:00Z", 0)));
+		SentimentDto again = store.addSentiment("vid1", List.of(labeled("c1", "2025-09-01T01:00:00Z", 2)));
+
+		assertThat(again.getAnalyzedCount()).isEqualTo(2);
+		assertThat(again.getLabelCounts()).containsExactly(1L, 0L, 1L);
+		assertThat(rollups.query("vid1", 24, 1).getLabelCounts()).containsExactly(1L, 0L, 1L);
+	}
+
+	@Test
+	void changedLabelReplacesThePreviousOne() {
+		store.merge("vid1", List.of(comment("c1", "2025-09-01T01:00:00Z")), true, 100);
+
+		store.addSentiment("vid1", List.of(labeled("c1", "2025-09-01T01:00:00Z", 2)));
+		SentimentDto relabeled = store.addSentiment("vid1", List.of(labeled("c1", "2025-09-01T01:00:00Z", 1)));
+
+		assertThat(relabeled.getAnalyzedCount()).isEqualTo(1);
+		assertThat(relabeled.getLabelCounts()).containsExactly(0L, 1L, 0L);
+		assertThat(relabeled.getHourlyLabelCounts().get(1)).containsExactly(0, 1, 0);
+		assertThat(rollups.query("vid1", 24, 1).getLabelCounts()).containsExactly(0L, 1L, 0L);
+	}
+
+	@Test
+	void replayWithoutStoredCommentsStillReachesTheRollup() {
+		// 재시작 뒤처럼 요약만 남아 있고 (스냅샷에서 읽으면 울타리가 선다) 댓글 보관 상태는 없다
+		CommentSyncStore before = new CommentSyncStore(1 << 24, 1000, 3600, rollups);
+		before.merge("vid1", List.of(comment("c1", "2025-09-01T01:00:00Z")), true, 100);
+		rollups.fence("vid1");
+
+		store.addSentiment("vid1", List.of(labeled("c1", "2025-09-01T01:00:00Z", 0)));
+
+		assertThat(rollups.query("vid1", 24, 1).getLabelCounts()).containsExactly(1L, 0L, 0L);
+	}
+
+	private static CommentDto comment(String id, String publishedAt) {
+		return new CommentDto(id, "a", "text " + id, 0L, publishedAt);
+	}
+
+	private static CommentDto labeled(String id, String publishedAt, int label) {
+		return new CommentDto(id, null, "text " + id, null, publishedAt, label, null);
+	}
+}
@@ -0,0 +1,146 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 스트림 single-flight 에 늦게 붙은 구독자는 지나간 이벤트 전체가 아니라
+ * 슬롯별 마지막 이벤트만 먼저 받고, 그 뒤로는 실시간 이벤트를 받는지 확인한다.
+ * 느린 구독자는 버퍼가 차면 혼자 끊기고, 구독자가 모두 떠나면 파이프라인이 취소되는지도 본다.
+ */
+class SingleFlightTest {
+
+	private final SingleFlight<String, String> flights = new SingleFlight<>();
+	private final Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+	private final AtomicInteger started = new AtomicInteger();
+
+	@Test
+	void lateSubscriberGetsLatestPerSlotThenLiveEvents() {
+		Mono<List<String>> first = join().collectList().cache();
+		first.subscribe();
+		emit("meta:v", "page:1", "analysis:1", "page:2", "analysis:2");
+
+		Mono<List<String>> late = join().collectList().cache();
+		late.subscribe();
+		emit("page:3", "done:3");
+		upstream.tryEmitComplete();
+
+		assertThat(first.block(Duration.ofSeconds(5)))
+				.containsExactly("meta:v", "page:1", "analysis:1", "page:2", "analysis:2", "page:3", "done:3");
+		// 메타데이터와 최신 통계만 먼저 받고 지나간 페이지는 받지 않는다
+		assertThat(late.block(Duration.ofSeconds(5)))
+				.containsExactly("meta:v", "analysis:2", "page:3", "done:3");
+		assertThat(started.get()).isEqualTo(1);
+	}
+
+	@Test
+	void finishedFlightStartsAgain() {
+		join().subscribe();
+		upstream.tryEmitComplete();
+
+		Flux<String> again = flights.joinMany("k", () -> {
+			started.incrementAndGet();
+			return Flux.just("meta:w");
+		}, SingleFlightTest::slot);
+
+		assertThat(again.collectList().block(Duration.ofSeconds(5))).containsExactly("meta:w");
+		assertThat(started.get()).isEqualTo(2);
+	}
+
+	@Test
+	void slowSubscriberIsDroppedWithoutHoldingBackOthers() {
+		SingleFlight<String, String> small = new SingleFlight<>(16);
+		Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+		List<String> fast = new ArrayList<>();
+		small.joinMany("k", source::asFlux, SingleFlightTest::slot).subscribe(fast::add);
+		SlowSubscriber slow = new SlowSubscriber();
+		small.joinMany("k", source::asFlux, SingleFlightTest::slot).subscribe(slow);
+
+		for (int i = 0; i < 100; i++)
+			source.tryEmitNext("page:" + i);
+
+		// 느린 구독자는 버퍼(16)를 넘긴 순간 빠지고, 받아 둔 것을 다 읽으면 오류로 끝난다
+		slow.request(Long.MAX_VALUE);
+		assertThat(slow.received).hasSizeLessThan(100);
+		assertThat(slow.error).isInstanceOf(SingleFlight.SlowSubscriberException.class);
+		// 빠른 구독자와 파이프라인은 그대로 간다
+		source.tryEmitNext("page:100");
+		assertThat(fast).hasSize(101);
+	}
+
+	@Test
+	void upstreamIsCancelledWhenEverySubscriberLeaves() {
+		AtomicInteger cancelled = new AtomicInteger();
+		Disposable a = neverEnding(cancelled).subscribe();
+		Disposable b = neverEnding(cancelled).subscribe();
+		assertThat(started.get()).isEqualTo(1);
+
+		a.dispose();
+		assertThat(cancelled.get()).isZero();
+		b.dispose();
+		assertThat(cancelled.get()).isEqualTo(1);
+
+		// 취소된 flight 에는 붙지 않고 새로 시작한다
+		neverEnding(cancelled).subscribe().dispose();
+		assertThat(started.get()).isEqualTo(2);
+	}
+
+	private Flux<String> neverEnding(AtomicInteger cancelled) {
+		return flights.joinMany("never", () -> {
+			started.incrementAndGet();
+			return Flux.<String>never().doOnCancel(cancelled::incrementAndGet);
+		}, SingleFlightTest::slot);
+	}
+
+	private Flux<String> join() {
+		return flights.joinMany("k", () -> {
+			started.incrementAndGet();
+			return upstream.asFlux();
+		}, SingleFlightTest::slot);
+	}
+
+	private void emit(String... events) {
+		for (String e : events)
+			upstream.tryEmitNext(e);
+	}
+
+	// 처음에 하나만 요청하고 그 뒤로는 읽지 않는 구독자
+	private static final class SlowSubscriber extends BaseSubscriber<String> {
+		final List<String> received = new ArrayList<>();
+		Throwable error;
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			request(1);
+		}
+
+		@Override
+		protected void hookOnNext(String value) {
+			received.add(value);
+		}
+
+		@Override
+		protected void hookOnError(Throwable throwable) {
+			error = throwable;
+		}
+	}
+
+	// 페이지는 남기지 않는다
+	private static String slot(String event) {
+		String type = event.substring(0, event.indexOf(':'));
+		return type.equals("page") ? null : type;
+	}
+}
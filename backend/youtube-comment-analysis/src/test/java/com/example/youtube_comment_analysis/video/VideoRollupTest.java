@@ -0,0 +1,93 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 누적 요약이 댓글을 다시 훑어 만든 결과와 같은지, 병합·스냅샷·울타리가 개수를 보존하는지 확인한다.
+ */
+class VideoRollupTest {
+
+	private static final long NOW = 1_700_000_000L; // 2023-11-14T22:13:20Z
+
+	@Test
+	void analysisMatchesFullScanForZonesWithoutTransitions() {
+		VideoRollup rollup = new VideoRollup();
+		ActivityStats seoul = new ActivityStats(ZoneId.of("Asia/Seoul"));
+		ActivityStats kolkata = new ActivityStats(ZoneId.of("Asia/Kolkata")); // +05:30
+		Random rnd = new Random(7);
+		for (int i = 0; i < 5000; i++) {
+			long t = NOW - rnd.nextInt(30 * 86400);
+			rollup.add(t, 1, "author" + rnd.nextInt(300));
+			seoul.add(t);
+			kolkata.add(t);
+		}
+
+		assertSameActivity(rollup.toAnalysis(ZoneId.of("Asia/Seoul")), seoul.toDto());
+		assertSameActivity(rollup.toAnalysis(ZoneId.of("Asia/Kolkata")), kolkata.toDto());
+		// 2023-11-05 에 서머타임이 끝나므로 최근 30일에는 전환이 끼어 있다
+		assertThat(rollup.toAnalysis(ZoneId.of("America/New_York"))).isNull();
+	}
+
+	@Test
+	void mergeAndSnapshotPreserveCounts() throws IOException {
+		VideoRollup a = new VideoRollup();
+		VideoRollup b = new VideoRollup();
+		for (int i = 0; i < 2000; i++) {
+			a.add(NOW - i * 60L, 2, "a" + i);
+			b.add(NOW - i * 60L, 1, "b" + (i % 500));
+		}
+		a.addSentiment(NOW, 2);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		a.writeTo(new DataOutputStream(bytes));
+		VideoRollup restored = VideoRollup.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		VideoRollup sum = new VideoRollup();
+		sum.merge(restored);
+		sum.merge(b);
+		RollupDto dto = sum.toDto(NOW, 24, 30);
+
+		assertThat(dto.getCommentCount()).isEqualTo(4000);
+		assertThat(dto.getLikeTotal()).isEqualTo(6000);
+		assertThat(dto.getLabelCounts()).containsExactly(0L, 0L, 1L);
+		// 고유 작성자 2500 명, HyperLogLog 오차 범위 안
+		assertThat(dto.getDistinctAuthors()).isBetween(2400L, 2600L);
+		assertThat(dto.getHourly()).hasSize(24);
+		assertThat(dto.getHourly().get(23).comments()).isEqualTo(2 * 14); // 22:00 ~ 22:13
+		assertThat(dto.getDaily().stream().mapToLong(RollupDto.Window::comments).sum()).isEqualTo(4000);
+	}
+
+	@Test
+	void fenceSkipsCommentsAlreadyCounted() {
+		VideoRollup rollup = new VideoRollup();
+		rollup.add(NOW - 60, 0, "x");
+		rollup.add(NOW, 0, "y");
+		rollup.fence();
+
+		// 중복 제거 상태를 잃은 뒤 같은 페이지를 다시 받아도 개수는 그대로, 그 뒤 댓글만 더해진다
+		assertThat(rollup.add(NOW - 60, 0, "x")).isFalse();
+		assertThat(rollup.add(NOW, 0, "y")).isFalse();
+		assertThat(rollup.add(NOW + 1, 0, "z")).isTrue();
+		assertThat(rollup.count()).isEqualTo(3);
+	}
+
+	private static void assertSameActivity(AnalysisDto actual, AnalysisDto expected) {
+		assertThat(actual).isNotNull();
+		assertThat(actual.getHourlyCommentCount()).isEqualTo(expected.getHourlyCommentCount());
+		assertThat(actual.getWeekdayCommentCount()).isEqualTo(expected.getWeekdayCommentCount());
+		assertThat(actual.getMinuteCommentCount()).isEqualTo(expected.getMinuteCommentCount());
+		assertThat(actual.getPeakHour()).isEqualTo(expected.getPeakHour());
+		assertThat(actual.getTotalCommentPeriod()).isEqualTo(expected.getTotalCommentPeriod());
+		assertThat(actual.getTimezone()).isEqualTo(expected.getTimezone());
+	}
+}
@@ -0,0 +1,172 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.youtube_comment_analysis.AdaptiveBatcher;
+import com.example.youtube_comment_analysis.AiSender;
+import com.example.youtube_comment_analysis.FastApiReplicas;
+import com.example.youtube_comment_analysis.JsonAiTransport;
+import com.example.youtube_comment_analysis.PipelineMetrics;
+import com.example.youtube_comment_analysis.SentimentCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 같은 영상에 대한 동시 요청이 YouTube / FastAPI 호출을 한 번만 만드는지 확인한다.
+ * 업스트림은 응답을 늦게 주는 stub 이라, 응답 캐시가 채워지기 전에 모든 요청이 도착한다.
+ */
+class VideoServiceCoalescingTest {
+
+	private static final int CALLERS = 32;
+	private static final Duration UPSTREAM_DELAY = Duration.ofMillis(300);
+
+	private static final String VIDEOS_JSON = """
+			{"items":[{"id":"vid1","snippet":{"title":"t","channelId":"ch","channelTitle":"c",
+			"publishedAt":"2025-09-01T00:00:00Z"},"statistics":{"viewCount":"10","likeCount":"2","commentCount":"3"}}]}
+			""";
+
+	private static final String COMMENTS_JSON = """
+			{"items":[
+			 {"id":"c1","snippet":{"topLevelComment":{"id":"c1","snippet":{"textDisplay":"좋아요","authorDisplayName":"a",
+			  "likeCount":1,"publishedAt":"2025-09-01T01:00:00Z"}}}},
+			 {"id":"c2","snippet":{"topLevelComment":{"id":"c2","snippet":{"textDisplay":"별로","authorDisplayName":"b",
+			  "likeCount":0,"publishedAt":"2025-09-01T02:00:00Z"}}}},
+			 {"id":"c3","snippet":{"topLevelComment":{"id":"c3","snippet":{"textDisplay":"그냥 그래요","authorDisplayName":"c",
+			  "likeCount":5,"publishedAt":"2025-09-01T03:00:00Z"}}}}
+			]}
+			""";
+
+	private static final String PREDICTIONS_JSON = """
+			{"comments":[{"id":"c1","prediction":2},{"id":"c2","prediction":0},{"id":"c3","prediction":1}]}
+			""";
+
+	private final AtomicInteger videosCalls = new AtomicInteger();
+	private final AtomicInteger commentCalls = new AtomicInteger();
+	private final AtomicInteger aiCalls = new AtomicInteger();
+
+	private WebClient yt;
+	private AiSender aiSender;
+	private PipelineMetrics metrics;
+	private VideoService service;
+
+	@BeforeEach
+	void setUp() {
+		yt = WebClient.builder()
+				.exchangeFunction(req -> {
+					String path = req.url().getPath();
+					if (path.endsWith("/videos")) {
+						videosCalls.incrementAndGet();
+						return delayed(VIDEOS_JSON);
+					}
+					commentCalls.incrementAndGet();
+					return delayed(COMMENTS_JSON);
+				})
+				.build();
+		WebClient ai = WebClient.builder()
+				.exchangeFunction(req -> {
+					aiCalls.incrementAndGet();
+					return delayed(PREDICTIONS_JSON);
+				})
+				.build();
+
+		metrics = new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+		aiSender = new AiSender(new JsonAiTransport(ai, "/analyze/comments"), new AdaptiveBatcher(false, 16, 500, 16, 2000),
+				new SentimentCache(1000, "", 16),
+				new FastApiReplicas("http://ai-stub", 5000, 0, 100, 0, 5, 10000), metrics);
+		ReflectionTestUtils.setField(aiSender, "timeoutMs", 5000L);
+		ReflectionTestUtils.setField(aiSender, "maxBatch", 500);
+		ReflectionTestUtils.setField(aiSender, "maxInflight", 4);
+
+		service = newService(new YoutubeResponseCache(1 << 20, 300, 60, ""));
+	}
+
+	private VideoService newService(YoutubeResponseCache responseCache) {
+		CommentSyncStore syncStore = new CommentSyncStore(1 << 24, 1000, 3600, new VideoRollups(1000, 3600, "", 0));
+		// 감성 결과를 같은 요청에서 확인하도록 큐는 끄고 인라인으로 보낸다
+		VideoService service = new VideoService(yt, aiSender,
+				responseCache,
+				syncStore,
+				new YoutubeQuotaScheduler(true, 10000, 86400, 300, 100, 3, 500, 30000, 600, 10000, 120000, 1000),
+				new AnalysisJobs(aiSender, syncStore, false, "", 0, false, 0, 500, 1, 1),
+				metrics);
+		ReflectionTestUtils.setField(service, "apikey", "test-key");
+		return service;
+	}
+
+	@Test
+	void concurrentRequestsShareOneUpstreamFetch() {
+		List<VideoResponse> responses = Flux.range(0, CALLERS)
+				.flatMap(i -> service.getVideoDataAsync("vid1", 100).subscribeOn(Schedulers.parallel()), CALLERS)
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+		assertThat(responses).hasSize(CALLERS);
+		assertThat(responses).allSatisfy(r -> {
+			assertThat(r.getTitle()).isEqualTo("t");
+			assertThat(r.getComments()).hasSize(3);
+		});
+		assertThat(videosCalls.get()).isEqualTo(1);
+		assertThat(commentCalls.get()).isEqualTo(1);
+		assertThat(aiCalls.get()).isEqualTo(1);
+	}
+
+	@Test
+	void lateJoinerAttachesToRunningStream() {
+		Mono<List<VideoStreamEvent>> first = service.streamVideoData("vid1", 100, null).collectList().cache();
+		first.subscribe();
+
+		// 첫 업스트림 응답이 오기 전에 두 번째 클라이언트가 붙는다
+		List<VideoStreamEvent> late = Mono.delay(UPSTREAM_DELAY.dividedBy(2))
+				.thenMany(service.streamVideoData("vid1", 100, null))
+				.collectList()
+				.block(Duration.ofSeconds(10));
+		List<VideoStreamEvent> early = first.block(Duration.ofSeconds(10));
+
+		assertThat(late).extracting(VideoStreamEvent::type)
+				.containsExactlyElementsOf(early.stream().map(VideoStreamEvent::type).toList());
+		assertThat(late.get(0).type()).isEqualTo("meta");
+		assertThat(late.get(late.size() - 1).type()).isEqualTo("done");
+		assertThat(videosCalls.get()).isEqualTo(1);
+		assertThat(commentCalls.get()).isEqualTo(1);
+		assertThat(aiCalls.get()).isEqualTo(1);
+	}
+
+	@Test
+	void finishedFlightIsNotReused() {
+		// 응답 캐시가 바로 만료되어, 두 번째 flight 가 새로 돌면 업스트림까지 간다
+		VideoService uncached = newService(new YoutubeResponseCache(1 << 20, 0, 0, ""));
+
+		uncached.getVideoDataAsync("vid1", 100).block(Duration.ofSeconds(10));
+		assertThat(videosCalls.get()).isEqualTo(1);
+		assertThat(commentCalls.get()).isEqualTo(1);
+
+		// 같은 키라도 앞 flight 가 끝났으면 결과를 재사용하지 않는다
+		uncached.getVideoDataAsync("vid1", 100).block(Duration.ofSeconds(10));
+		assertThat(videosCalls.get()).isEqualTo(2);
+		assertThat(commentCalls.get()).isEqualTo(2);
+	}
+
+	private static Mono<ClientResponse> delayed(String json) {
+		return Mono.delay(UPSTREAM_DELAY).thenReturn(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.body(json)
+				.build());
+	}
+}
@@ -0,0 +1,176 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.youtube_comment_analysis.AdaptiveBatcher;
+import com.example.youtube_comment_analysis.AiSender;
+import com.example.youtube_comment_analysis.FastApiReplicas;
+import com.example.youtube_comment_analysis.JsonAiTransport;
+import com.example.youtube_comment_analysis.PipelineMetrics;
+import com.example.youtube_comment_analysis.SentimentCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * 답글 펼치기: 인라인 답글과 /comments?parentId= 페이지를 합치고, 겹치는 답글은 한 번만 남기며,
+ * 답글도 부모 링크를 단 채 감성 분석까지 거치는지 확인한다.
+ */
+class VideoServiceRepliesTest {
+
+	private static final String VIDEOS_JSON = """
+			{"items":[{"id":"vid1","snippet":{"title":"t","channelId":"ch","channelTitle":"c",
+			"publishedAt":"2025-09-01T00:00:00Z"},"statistics":{"viewCount":"10","likeCount":"2","commentCount":"6"}}]}
+			""";
+
+	// c1 은 답글 4개 중 2개만 인라인으로 온다. c2 는 답글이 없다
+	private static final String THREADS_JSON = """
+			{"items":[
+			 {"id":"c2","snippet":{"topLevelComment":{"id":"c2","snippet":{"textDisplay":"두 번째","authorDisplayName":"b",
+			  "likeCount":0,"publishedAt":"2025-09-01T02:00:00Z"}},"totalReplyCount":0}},
+			 {"id":"c1","snippet":{"topLevelComment":{"id":"c1","snippet":{"textDisplay":"첫 번째","authorDisplayName":"a",
+			  "likeCount":1,"publishedAt":"2025-09-01T01:00:00Z"}},"totalReplyCount":4},
+			  "replies":{"comments":[
+			   {"id":"c1.r1","snippet":{"parentId":"c1","textDisplay":"답글1","publishedAt":"2025-09-01T01:10:00Z"}},
+			   {"id":"c1.r2","snippet":{"parentId":"c1","textDisplay":"답글2","publishedAt":"2025-09-01T01:20:00Z"}}]}}
+			]}
+			""";
+
+	// 나중에 올라온 스레드 두 개. c3 의 답글은 인라인으로 다 온다
+	private static final String NEWER_THREADS_JSON = """
+			{"items":[
+			 {"id":"c4","snippet":{"topLevelComment":{"id":"c4","snippet":{"textDisplay":"네 번째",
+			  "publishedAt":"2025-09-01T04:00:00Z"}},"totalReplyCount":0}},
+			 {"id":"c3","snippet":{"topLevelComment":{"id":"c3","snippet":{"textDisplay":"세 번째",
+			  "publishedAt":"2025-09-01T03:00:00Z"}},"totalReplyCount":2},
+			  "replies":{"comments":[
+			   {"id":"c3.r1","snippet":{"parentId":"c3","textDisplay":"답글","publishedAt":"2025-09-01T03:10:00Z"}},
+			   {"id":"c3.r2","snippet":{"parentId":"c3","textDisplay":"답글","publishedAt":"2025-09-01T03:20:00Z"}}]}}
+			]}
+			""";
+
+	private static final String REPLIES_PAGE_1 = """
+			{"nextPageToken":"p2","items":[
+			 {"id":"c1.r1","snippet":{"parentId":"c1","textDisplay":"답글1","publishedAt":"2025-09-01T01:10:00Z"}},
+			 {"id":"c1.r3","snippet":{"parentId":"c1","textDisplay":"답글3","publishedAt":"2025-09-01T01:30:00Z"}}]}
+			""";
+
+	private static final String REPLIES_PAGE_2 = """
+			{"items":[
+			 {"id":"c1.r2","snippet":{"parentId":"c1","textDisplay":"답글2","publishedAt":"2025-09-01T01:20:00Z"}},
+			 {"id":"c1.r4","snippet":{"textDisplay":"답글4","publishedAt":"2025-09-01T01:40:00Z"}}]}
+			""";
+
+	private static final String PREDICTIONS_JSON = """
+			{"comments":[{"id":"c1","prediction":2},{"id":"c2","prediction":1},{"id":"c1.r1","prediction":0},
+			{"id":"c1.r2","prediction":0},{"id":"c1.r3","prediction":2},{"id":"c1.r4","prediction":1}]}
+			""";
+
+	private final AtomicInteger replyCalls = new AtomicInteger();
+	private final Map<String, String> replyParents = new ConcurrentHashMap<>();
+	private final AtomicReference<String> threadsJson = new AtomicReference<>(THREADS_JSON);
+
+	private CommentSyncStore syncStore;
+	private VideoService service;
+
+	@BeforeEach
+	void setUp() {
+		WebClient yt = WebClient.builder()
+				.exchangeFunction(req -> {
+					String path = req.url().getPath();
+					if (path.endsWith("/videos"))
+						return json(VIDEOS_JSON);
+					if (path.endsWith("/comments")) {
+						replyCalls.incrementAndGet();
+						String query = req.url().getQuery();
+						replyParents.put(query.contains("pageToken=p2") ? "p2" : "p1",
+								query.replaceAll(".*parentId=([^&]+).*", "$1"));
+						return json(query.contains("pageToken=p2") ? REPLIES_PAGE_2 : REPLIES_PAGE_1);
+					}
+					return json(threadsJson.get());
+				})
+				.build();
+		WebClient ai = WebClient.builder()
+				.exchangeFunction(req -> json(PREDICTIONS_JSON))
+				.build();
+
+		PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+		AiSender aiSender = new AiSender(new JsonAiTransport(ai, "/analyze/comments"), new AdaptiveBatcher(false, 16, 500, 16, 2000),
+				new SentimentCache(1000, "", 16),
+				new FastApiReplicas("http://ai-stub", 5000, 0, 100, 0, 5, 10000), metrics);
+		ReflectionTestUtils.setField(aiSender, "timeoutMs", 5000L);
+		ReflectionTestUtils.setField(aiSender, "maxBatch", 500);
+		ReflectionTestUtils.setField(aiSender, "maxInflight", 4);
+
+		syncStore = new CommentSyncStore(1 << 24, 1000, 3600, new VideoRollups(1000, 3600, "", 0));
+		service = new VideoService(yt, aiSender,
+				new YoutubeResponseCache(1 << 20, 300, 60, ""),
+				syncStore,
+				new YoutubeQuotaScheduler(true, 10000, 86400, 300, 100, 3, 500, 30000, 600, 10000, 120000, 1000),
+				new AnalysisJobs(aiSender, syncStore, false, "", 0, false, 0, 500, 1, 1),
+				metrics);
+		ReflectionTestUtils.setField(service, "apikey", "test-key");
+		ReflectionTestUtils.setField(service, "repliesEnabled", true);
+		ReflectionTestUtils.setField(service, "replyParallelism", 2);
+		ReflectionTestUtils.setField(service, "maxRepliesPerThread", 1000);
+	}
+
+	@Test
+	void partialThreadsArePagedAndDeduplicated() {
+		VideoResponse resp = service.getVideoDataAsync("vid1", 100).block(Duration.ofSeconds(10));
+
+		Map<String, CommentDto> byId = resp.getComments().stream()
+				.collect(Collectors.toMap(CommentDto::getCommentId, Function.identity()));
+		assertThat(resp.getComments()).hasSize(6);
+		assertThat(byId).containsOnlyKeys("c1", "c2", "c1.r1", "c1.r2", "c1.r3", "c1.r4");
+		assertThat(byId.get("c1").getParentId()).isNull();
+		assertThat(byId.get("c1.r4").getParentId()).isEqualTo("c1"); // 응답에 없으면 요청한 parentId 로 채운다
+		assertThat(byId.get("c1.r3").getSentiment()).isEqualTo(2);
+
+		// 답글이 모자란 스레드(c1)만 두 페이지를 받는다
+		assertThat(replyCalls.get()).isEqualTo(2);
+		assertThat(replyParents).containsEntry("p1", "c1").containsEntry("p2", "c1");
+		assertThat(resp.getSentiment()).isNotNull();
+		assertThat(resp.getAnalysis().getHourlyCommentCount().get(1)).isEqualTo(5);
+	}
+
+	@Test
+	void repliesDoNotCountTowardThreadLimit() {
+		service.getVideoDataAsync("vid1", 2).block(Duration.ofSeconds(10));
+		CommentSyncStore.VideoComments before = syncStore.get("vid1");
+
+		// 스레드 2개 + 답글 2개 = 4개지만 스레드 기준으로는 limit(3) 을 채우지 못했으니 이어지는 동기화다
+		threadsJson.set(NEWER_THREADS_JSON);
+		VideoResponse again = service.getVideoDataAsync("vid1", 3).block(Duration.ofSeconds(10));
+
+		assertThat(syncStore.get("vid1")).isSameAs(before);
+		assertThat(again.getComments()).extracting(CommentDto::getCommentId)
+				.containsExactly("c4", "c3", "c3.r1");
+		assertThat(replyCalls.get()).isEqualTo(2); // c3 은 인라인 답글로 충분하다
+	}
+
+	private static Mono<ClientResponse> json(String body) {
+		return Mono.just(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.body(body)
+				.build());
+	}
+}
@@ -0,0 +1,189 @@
+package com.example.youtube_comment_analysis.video;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * 토큰 버킷이 하루 할당량 속도로 채워지는지, INTERACTIVE 레인이 먼저 나가는지,
+ * 토큰을 못 얻으면 무한정 기다리지 않고 실패하는지 확인한다.
+ * 채움 속도는 가짜 시계로 확인하고, 레인 순서는 실제 타이머가 깨우는 순서로 확인한다.
+ */
+class YoutubeQuotaSchedulerTest {
+
+	@Test
+	void interactiveLaneIsServedBeforeBackground() throws InterruptedException {
+		// 버킷 1칸, 50ms 마다 1 unit
+		YoutubeQuotaScheduler scheduler = scheduler(TimeUnit.DAYS.toMillis(1) / 50, 1, 0, 100);
+		scheduler.submit(1, () -> Mono.just("first")).block(Duration.ofSeconds(5));
+
+		List<String> order = new CopyOnWriteArrayList<>();
+		Mono<String> background = scheduler.submit(1, () -> Mono.fromCallable(() -> record(order, "background")))
+				.contextWrite(YoutubeQuotaScheduler.lane(YoutubeQuotaScheduler.Lane.BACKGROUND));
+		Mono<String> interactive = scheduler.submit(1, () -> Mono.fromCallable(() -> record(order, "interactive")));
+
+		// 백그라운드가 먼저 줄을 섰어도 다음 토큰은 사용자 요청에 간다
+		Disposable bg = background.subscribe();
+		interactive.block(Duration.ofSeconds(5));
+		awaitSize(order, 2);
+		bg.dispose();
+
+		assertThat(order).containsExactly("interactive", "background");
+		assertThat(scheduler.stats().granted()).isEqualTo(3);
+	}
+
+	@Test
+	void bucketRefillsAtTheDailyRate() {
+		AtomicLong now = new AtomicLong(System.nanoTime());
+		// 하루 86400 unit = 초당 1 unit, 버킷 10칸
+		YoutubeQuotaScheduler scheduler = scheduler(86_400, 10, 0, 100);
+		ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+
+		for (int i = 0; i < 10; i++)
+			scheduler.submit(1, () -> Mono.just("ok")).block(Duration.ofSeconds(5));
+		assertThat(scheduler.stats().availableUnits()).isCloseTo(0.0, within(0.01));
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+		assertThat(scheduler.stats().availableUnits()).isCloseTo(3.0, within(0.01));
+
+		// burst-units 이상으로는 쌓이지 않는다
+		now.addAndGet(TimeUnit.HOURS.toNanos(1));
+		assertThat(scheduler.stats().availableUnits()).isCloseTo(10.0, within(0.01));
+	}
+
+	@Test
+	void exhaustedBucketFailsAfterMaxWaitWithoutPausingOtherCalls() {
+		AtomicLong now = new AtomicLong(System.nanoTime());
+		YoutubeQuotaScheduler scheduler = scheduler(86_400, 1, 50, 10);
+		ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+		scheduler.submit(1, () -> Mono.just("ok")).block(Duration.ofSeconds(5));
+
+		// 시계가 멈춰 있어 토큰이 다시 차지 않는다
+		assertThatThrownBy(() -> scheduler.submit(1, () -> Mono.just("never")).block(Duration.ofSeconds(5)))
+				.isInstanceOf(YoutubeQuotaScheduler.QuotaException.class)
+				.hasMessageContaining("대기 시간 초과");
+
+		YoutubeQuotaScheduler.Stats stats = scheduler.stats();
+		assertThat(stats.rejected()).isEqualTo(1);
+		assertThat(stats.pausedForMs()).isZero(); // 스스로 거절한 것은 API 백오프로 치지 않는다
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertThat(scheduler.submit(1, () -> Mono.just("ok")).block(Duration.ofSeconds(5))).isEqualTo("ok");
+	}
+
+	@Test
+	void fullQueueRejectsImmediately() {
+		AtomicLong now = new AtomicLong(System.nanoTime());
+		YoutubeQuotaScheduler scheduler = scheduler(86_400, 1, 0, 1);
+		ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+		scheduler.submit(1, () -> Mono.just("ok")).block(Duration.ofSeconds(5));
+
+		Disposable waiting = scheduler.submit(1, () -> Mono.just("waiting")).subscribe();
+		assertThatThrownBy(() -> scheduler.submit(1, () -> Mono.just("overflow")).block(Duration.ofSeconds(5)))
+				.isInstanceOf(YoutubeQuotaScheduler.QuotaException.class)
+				.hasMessageContaining("대기열");
+		assertThat(scheduler.stats().interactiveWaiting()).isEqualTo(1);
+		waiting.dispose();
+	}
+
+	@Test
+	void sustainedInteractiveLoadBeyondTheBurstRunsAtTheSteadyRate() {
+		AtomicLong now = new AtomicLong(System.nanoTime());
+		// 기본값: 하루 10000 unit, 버킷 300칸 → burst 뒤로는 초당 약 0.116 unit
+		YoutubeQuotaScheduler scheduler = scheduler(10_000, 300, 20, 1000);
+		ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+
+		assertThat(grantedWithin(scheduler, 300)).isEqualTo(300);
+
+		// max-wait(10초) 만큼 지나도 토큰은 1개 남짓만 찬다: 나머지 INTERACTIVE 요청은 대기 시간 초과로 실패
+		now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertThat(grantedWithin(scheduler, 10)).isEqualTo(1);
+		assertThat(scheduler.stats().rejected()).isEqualTo(9);
+
+		// 1분이면 7개 (60 * 10000 / 86400 = 6.9 + 남은 자투리)
+		now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+		assertThat(grantedWithin(scheduler, 20)).isEqualTo(7);
+	}
+
+	@Test
+	void shorterRefillWindowRaisesTheSteadyRate() {
+		AtomicLong now = new AtomicLong(System.nanoTime());
+		// 같은 10000 unit 을 한 시간 창으로 채우면 초당 약 2.8 unit
+		YoutubeQuotaScheduler scheduler = scheduler(10_000, 3_600, 300, 20, 1000);
+		ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+		assertThat(grantedWithin(scheduler, 300)).isEqualTo(300);
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertThat(grantedWithin(scheduler, 40)).isEqualTo(27);
+	}
+
+	@Test
+	void cancelledWaiterInTheMiddleOfTheQueueFreesItsSlot() {
+		AtomicLong now = new AtomicLong(System.nanoTime());
+		YoutubeQuotaScheduler scheduler = scheduler(86_400, 1, 0, 2);
+		ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+		scheduler.submit(1, () -> Mono.just("ok")).block(Duration.ofSeconds(5));
+
+		Disposable head = scheduler.submit(1, () -> Mono.just("head")).subscribe();
+		Disposable middle = scheduler.submit(1, () -> Mono.just("middle")).subscribe();
+		middle.dispose();
+		assertThat(scheduler.stats().interactiveWaiting()).isEqualTo(1);
+
+		// 맨 앞이 아닌 취소된 요청은 자리를 차지하지 않는다
+		Disposable next = scheduler.submit(1, () -> Mono.just("next")).subscribe();
+		assertThat(scheduler.stats().interactiveWaiting()).isEqualTo(2);
+		assertThat(scheduler.stats().rejected()).isZero();
+
+		head.dispose();
+		next.dispose();
+		assertThat(scheduler.stats().interactiveWaiting()).isZero();
+	}
+
+	// 재시도 없음, 백그라운드 여유분 0, maxWaitMs 0 = 제한 없음
+	private static YoutubeQuotaScheduler scheduler(long dailyUnits, long burstUnits, long maxWaitMs, int maxPending) {
+		return scheduler(dailyUnits, 86_400, burstUnits, maxWaitMs, maxPending);
+	}
+
+	private static YoutubeQuotaScheduler scheduler(long dailyUnits, long refillWindowSec, long burstUnits, long maxWaitMs,
+			int maxPending) {
+		return new YoutubeQuotaScheduler(true, dailyUnits, refillWindowSec, burstUnits, 0, 0, 500, 30000, 600,
+				maxWaitMs, maxWaitMs, maxPending);
+	}
+
+	private static int grantedWithin(YoutubeQuotaScheduler scheduler, int calls) {
+		int ok = 0;
+		for (int i = 0; i < calls; i++) {
+			try {
+				scheduler.submit(1, () -> Mono.just("ok")).block(Duration.ofSeconds(5));
+				ok++;
+			} catch (YoutubeQuotaScheduler.QuotaException e) {
+				// 대기 시간 초과
+			}
+		}
+		return ok;
+	}
+
+	private static String record(List<String> order, String name) {
+		order.add(name);
+		return name;
+	}
+
+	private static void awaitSize(List<String> order, int size) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (order.size() < size && System.nanoTime() < deadline)
+			Thread.sleep(10);
+	}
+}